@@ -18,9 +18,13 @@ package examples;
 
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.docgen.Source;
 import io.vertx.ext.mail.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * code chunks for the adoc documentation
  *
@@ -95,4 +99,42 @@ public class MailExamples {
       .onSuccess(System.out::println)
       .onFailure(Throwable::printStackTrace);
   }
+
+  public void warmUp(Vertx vertx) {
+    MailConfig config = new MailConfig()
+      .setHostname("mail.example.com")
+      .setMinIdle(5);
+    MailClient mailClient = MailClient.createShared(vertx, config);
+    mailClient.warmUp(5)
+      .onSuccess(v -> System.out.println("pool is ready"))
+      .onFailure(Throwable::printStackTrace);
+  }
+
+  public void sendMails(Vertx vertx, List<MailMessage> messages) {
+    MailConfig config = new MailConfig()
+      .setHostname("mail.example.com")
+      .setMaxPoolSize(4);
+    MailClient mailClient = MailClient.createShared(vertx, config);
+    mailClient.sendMails(messages)
+      .onSuccess(results -> results.forEach(result -> {
+        if (result.getCause() != null) {
+          result.getCause().printStackTrace();
+        }
+      }))
+      .onFailure(Throwable::printStackTrace);
+  }
+
+  public void sendTemplate(MailClient mailClient) {
+    MailMessage template = new MailMessage()
+      .setFrom("news@example.com")
+      .setTo("${email}")
+      .setSubject("News for ${name}")
+      .setText("Hello ${name},\n\nthis is the same text for everyone.\n");
+    List<JsonObject> values = Arrays.asList(
+      new JsonObject().put("email", "user1@example.com").put("name", "User 1"),
+      new JsonObject().put("email", "user2@example.com").put("name", "User 2"));
+    mailClient.sendMails(template, values)
+      .onSuccess(results -> System.out.println(results.size() + " mails sent"))
+      .onFailure(Throwable::printStackTrace);
+  }
 }
@@ -0,0 +1,37 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail;
+
+import io.vertx.core.VertxException;
+
+/**
+ * the failure of a send operation that did not get a connection from the pool, either because the wait queue is
+ * full ({@link MailConfig#setMaxWaitQueueSize(int)}) or because no connection became free within
+ * {@link MailConfig#setConnectionAcquireTimeout(int)}
+ * <p>
+ * Nothing has been sent to the server when this failure is returned, so the mail can be retried or sent over
+ * another server.
+ */
+public class ConnectionPoolBusyException extends VertxException {
+
+  private static final long serialVersionUID = 1L;
+
+  public ConnectionPoolBusyException(String message) {
+    super(message, true);
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail;
+
+import io.vertx.codegen.annotations.VertxGen;
+
+/**
+ * possible options to check an idle pooled connection with a RSET command before it is used again
+ * <br>
+ * either ALWAYS, IDLE or NEVER
+ * <p>
+ * ALWAYS means every idle connection is checked before it is used, this costs one round trip per mail
+ * <p>
+ * IDLE means a connection is only checked if it has been idle for longer than the validation idle threshold,
+ * a connection that finished a mail shortly before goes straight to the MAIL FROM command
+ * <p>
+ * NEVER means idle connections are used without checking them, a mail sent over a connection that the server
+ * has dropped fails
+ */
+@VertxGen
+public enum ConnectionValidation {
+  ALWAYS,
+  IDLE,
+  NEVER
+}
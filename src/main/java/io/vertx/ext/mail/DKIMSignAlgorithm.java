@@ -26,8 +26,13 @@ import io.vertx.codegen.annotations.VertxGen;
  */
 @VertxGen
 public enum DKIMSignAlgorithm {
-  RSA_SHA1("sha1", "rsa", "SHA-1"), // rsa-sha1
-  RSA_SHA256("sha256", "rsa", "SHA-256"); // rsa-sha256
+  RSA_SHA1("sha1", "rsa", "SHA-1", "SHA1withRSA", "RSA"), // rsa-sha1
+  RSA_SHA256("sha256", "rsa", "SHA-256", "SHA256withRSA", "RSA"), // rsa-sha256
+  /**
+   * ed25519-sha256, RFC 8463. It needs a {@link java.security.Signature} provider for Ed25519, which the JDK has since
+   * Java 15, the DKIM signer fails to be created on older versions without such a provider.
+   */
+  ED25519_SHA256("sha256", "ed25519", "SHA-256", "Ed25519", "Ed25519");
 
   /**
    * The hash algorithm id used by {@link io.vertx.ext.auth.HashingAlgorithm} to distinguish from others.
@@ -35,7 +40,7 @@ public enum DKIMSignAlgorithm {
   private final String hashAlgoId;
 
   /**
-   * The Hash type. It is: <code>rsa</code> now.
+   * The key type: <code>rsa</code> or <code>ed25519</code>.
    */
   private final String type;
 
@@ -44,10 +49,22 @@ public enum DKIMSignAlgorithm {
    */
   private final String hashAlgo;
 
-  DKIMSignAlgorithm(String hashAlgoId, String type, String hashAlgo) {
+  /**
+   * The algorithm that can be used by the {@link java.security.Signature} to sign.
+   */
+  private final String signatureAlgo;
+
+  /**
+   * The algorithm that can be used by the {@link java.security.KeyFactory} to load the private key.
+   */
+  private final String keyAlgo;
+
+  DKIMSignAlgorithm(String hashAlgoId, String type, String hashAlgo, String signatureAlgo, String keyAlgo) {
     this.hashAlgoId = hashAlgoId;
     this.type = type;
     this.hashAlgo = hashAlgo;
+    this.signatureAlgo = signatureAlgo;
+    this.keyAlgo = keyAlgo;
   }
 
   /**
@@ -80,12 +97,23 @@ public enum DKIMSignAlgorithm {
   }
 
   /**
-   * Gets the Signature Algorithm, like: SHA256withRSA, SHA1withRSA.
+   * Gets the Signature Algorithm, like: SHA256withRSA, SHA1withRSA, Ed25519.
+   * <p>
+   * Ed25519 signs the SHA-256 hash of the signed headers, see: https://tools.ietf.org/html/rfc8463#section-3
    *
    * @return the signature algorithm
    */
   public String signatureAlgorithm() {
-    return this.hashAlgoId.toUpperCase() + "with" + this.type.toUpperCase();
+    return this.signatureAlgo;
+  }
+
+  /**
+   * Gets the algorithm of the private key, like: RSA, Ed25519.
+   *
+   * @return the key algorithm
+   */
+  public String keyAlgorithm() {
+    return this.keyAlgo;
   }
 
 }
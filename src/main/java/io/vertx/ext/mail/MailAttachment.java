@@ -193,6 +193,43 @@ public interface MailAttachment {
   @Fluent
   MailAttachment setContentId(String contentId);
 
+  /**
+   * get the path of the file containing the data of the attachment
+   *
+   * @return the file path
+   */
+  String getFilePath();
+
+  /**
+   * set the path of a file containing the data of the attachment, this can be used instead of data or a stream.
+   * <p>
+   * The file is mapped into memory on a worker thread when the mail is encoded, so its data is read by the base64
+   * encoding as it is sent and does not have to be copied to the heap first.
+   *
+   * @param filePath the file path
+   * @return this to be able to use it fluently
+   */
+  @Fluent
+  MailAttachment setFilePath(String filePath);
+
+  /**
+   * get the cache key of the attachment
+   *
+   * @return the cache key
+   */
+  String getCacheKey();
+
+  /**
+   * set the key used to cache the encoded attachment if the attachment cache is enabled in the MailConfig, attachments
+   * with the same key must have the same data. Without cache key, only attachments with the same data buffer instance
+   * share the encoded data.
+   *
+   * @param cacheKey the cache key
+   * @return this to be able to use it fluently
+   */
+  @Fluent
+  MailAttachment setCacheKey(String cacheKey);
+
   /**
    * Add an header to this attachment.
    *
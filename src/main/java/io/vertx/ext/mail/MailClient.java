@@ -19,8 +19,11 @@ package io.vertx.ext.mail;
 import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.*;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.mail.impl.MailClientImpl;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -93,6 +96,107 @@ public interface MailClient {
     return promise.future();
   }
 
+  /**
+   * send a number of mails via MailClient
+   * <p>
+   * The mails are spread over up to max pool size connections. Each connection sends one mail after the other
+   * without going back to the pool in between, this saves the checks of the pooled connection between the mails.
+   * If a mail fails, its result has the cause of the failure, see {@link MailResult#getCause()}, and the other mails
+   * are sent anyway. The operation only fails when no connection can be opened, the mails that have not been started
+   * yet are not sent then.
+   *
+   * @param emails        the mails to send
+   * @param resultHandler will be called with the results in the order of the mails when all mails have been sent
+   *                      or failed
+   * @return this MailClient instance so the method can be used fluently
+   */
+  @Fluent
+  MailClient sendMails(List<MailMessage> emails, Handler<AsyncResult<List<MailResult>>> resultHandler);
+
+  /**
+   * Same as {@link #sendMails(List, Handler)} but returning a Future.
+   * {@inheritDoc}
+   */
+  default Future<List<MailResult>> sendMails(List<MailMessage> emails) {
+    final Promise<List<MailResult>> promise = Promise.promise();
+    sendMails(emails, promise);
+    return promise.future();
+  }
+
+  /**
+   * send the mails of a stream via MailClient
+   * <p>
+   * Works like {@link #sendMails(List, Handler)}, the stream is paused while enough mails are waiting to be sent.
+   *
+   * @param emails        the stream of mails to send
+   * @param resultHandler will be called with the results in the order of the mails when the stream has ended and
+   *                      all mails have been sent or failed
+   * @return this MailClient instance so the method can be used fluently
+   */
+  @Fluent
+  MailClient sendMails(ReadStream<MailMessage> emails, Handler<AsyncResult<List<MailResult>>> resultHandler);
+
+  /**
+   * Same as {@link #sendMails(ReadStream, Handler)} but returning a Future.
+   * {@inheritDoc}
+   */
+  default Future<List<MailResult>> sendMails(ReadStream<MailMessage> emails) {
+    final Promise<List<MailResult>> promise = Promise.promise();
+    sendMails(emails, promise);
+    return promise.future();
+  }
+
+  /**
+   * send a mail built from a template to each of a number of recipients
+   * <p>
+   * The subject, the To addresses, the text and the html of the template may contain placeholders like
+   * {@code ${name}}, which are replaced by the values of each mail. The template is encoded once and only the
+   * lines with placeholders are encoded for each mail, the attachments of the template must have data since they
+   * are sent with every mail. The mails are sent like {@link #sendMails(List, Handler)}.
+   *
+   * @param template      the message with placeholders
+   * @param values        the values of the placeholders of each mail
+   * @param resultHandler will be called with the results in the order of the values when all mails have been sent
+   *                      or failed
+   * @return this MailClient instance so the method can be used fluently
+   */
+  @Fluent
+  MailClient sendMails(MailMessage template, List<JsonObject> values, Handler<AsyncResult<List<MailResult>>> resultHandler);
+
+  /**
+   * Same as {@link #sendMails(MailMessage, List, Handler)} but returning a Future.
+   * {@inheritDoc}
+   */
+  default Future<List<MailResult>> sendMails(MailMessage template, List<JsonObject> values) {
+    final Promise<List<MailResult>> promise = Promise.promise();
+    sendMails(template, values, promise);
+    return promise.future();
+  }
+
+  /**
+   * open connections to the mail server in advance, so the first mails do not have to wait for connect, TLS,
+   * EHLO and login
+   * <p>
+   * The connections are opened in parallel until the pool has the requested number of connections, but not more
+   * than the max pool size. They stay in the pool as idle connections.
+   *
+   * @param connections   the number of connections to open
+   * @param resultHandler will be called when all connections are open or opening one of them failed
+   * @return this MailClient instance so the method can be used fluently
+   */
+  @Fluent
+  MailClient warmUp(int connections, Handler<AsyncResult<Void>> resultHandler);
+
+  /**
+   * Same as {@link #warmUp(int, Handler)} but returning a Future.
+   * {@inheritDoc}
+   */
+  default Future<Void> warmUp(int connections) {
+    final Promise<Void> promise = Promise.promise();
+    warmUp(connections, promise);
+    return promise.future();
+  }
+
   /**
    * close the MailClient
    */
@@ -57,6 +57,22 @@ public class MailConfig extends NetClientOptions {
   private static final boolean DEFAULT_ENABLE_DKIM = false;
   public static final String DEFAULT_USER_AGENT = "vertxmail";
   public static final boolean DEFAULT_ENABLE_PIPELINING = true;
+  public static final boolean DEFAULT_PER_CONTEXT_POOL = false;
+  public static final int DEFAULT_POOL_IDLE_TIMEOUT = 0;
+  public static final TimeUnit DEFAULT_POOL_IDLE_TIMEOUT_UNIT = TimeUnit.SECONDS;
+  public static final int DEFAULT_MAX_LIFETIME = 0;
+  public static final TimeUnit DEFAULT_MAX_LIFETIME_UNIT = TimeUnit.SECONDS;
+  public static final int DEFAULT_MAX_MAILS_PER_CONNECTION = 0;
+  public static final int DEFAULT_POOL_CLEANER_PERIOD = 1000;
+  public static final ConnectionValidation DEFAULT_CONNECTION_VALIDATION = ConnectionValidation.ALWAYS;
+  public static final int DEFAULT_VALIDATION_IDLE_THRESHOLD = 1000;
+  public static final int DEFAULT_MIN_IDLE = 0;
+  public static final int DEFAULT_MAX_WAIT_QUEUE_SIZE = -1;
+  public static final int DEFAULT_CONNECTION_ACQUIRE_TIMEOUT = 0;
+  public static final boolean DEFAULT_TRANSACTION_PIPELINING = false;
+  public static final boolean DEFAULT_CHUNKING = false;
+  public static final int DEFAULT_ATTACHMENT_CACHE_SIZE = 0;
+  public static final int DEFAULT_DKIM_WORKER_POOL_SIZE = 4;
 
   private String hostname = DEFAULT_HOST;
   private int port = DEFAULT_PORT;
@@ -74,6 +90,23 @@ public class MailConfig extends NetClientOptions {
   private boolean enableDKIM = DEFAULT_ENABLE_DKIM;
   private List<DKIMSignOptions> dkimSignOptions;
   private boolean pipelining = DEFAULT_ENABLE_PIPELINING;
+  private boolean perContextPool = DEFAULT_PER_CONTEXT_POOL;
+  private int poolIdleTimeout = DEFAULT_POOL_IDLE_TIMEOUT;
+  private TimeUnit poolIdleTimeoutUnit = DEFAULT_POOL_IDLE_TIMEOUT_UNIT;
+  private int maxLifetime = DEFAULT_MAX_LIFETIME;
+  private TimeUnit maxLifetimeUnit = DEFAULT_MAX_LIFETIME_UNIT;
+  private int maxMailsPerConnection = DEFAULT_MAX_MAILS_PER_CONNECTION;
+  private int poolCleanerPeriod = DEFAULT_POOL_CLEANER_PERIOD;
+  private ConnectionValidation connectionValidation = DEFAULT_CONNECTION_VALIDATION;
+  private int validationIdleThreshold = DEFAULT_VALIDATION_IDLE_THRESHOLD;
+  private int minIdle = DEFAULT_MIN_IDLE;
+  private int maxWaitQueueSize = DEFAULT_MAX_WAIT_QUEUE_SIZE;
+  private int connectionAcquireTimeout = DEFAULT_CONNECTION_ACQUIRE_TIMEOUT;
+  private boolean transactionPipelining = DEFAULT_TRANSACTION_PIPELINING;
+  private boolean chunking = DEFAULT_CHUNKING;
+  private int attachmentCacheSize = DEFAULT_ATTACHMENT_CACHE_SIZE;
+  private String dkimWorkerPoolName;
+  private int dkimWorkerPoolSize = DEFAULT_DKIM_WORKER_POOL_SIZE;
 
   // https://tools.ietf.org/html/rfc5322#section-3.2.3, atext
   private static final Pattern A_TEXT_PATTERN = Pattern.compile("[a-zA-Z0-9!#$%&'*+-/=?^_`{|}~ ]+");
@@ -146,6 +179,23 @@ public class MailConfig extends NetClientOptions {
       dkimSignOptions = other.dkimSignOptions.stream().map(DKIMSignOptions::new).collect(Collectors.toList());
     }
     pipelining = other.pipelining;
+    perContextPool = other.perContextPool;
+    poolIdleTimeout = other.poolIdleTimeout;
+    poolIdleTimeoutUnit = other.poolIdleTimeoutUnit;
+    maxLifetime = other.maxLifetime;
+    maxLifetimeUnit = other.maxLifetimeUnit;
+    maxMailsPerConnection = other.maxMailsPerConnection;
+    poolCleanerPeriod = other.poolCleanerPeriod;
+    connectionValidation = other.connectionValidation;
+    validationIdleThreshold = other.validationIdleThreshold;
+    minIdle = other.minIdle;
+    maxWaitQueueSize = other.maxWaitQueueSize;
+    connectionAcquireTimeout = other.connectionAcquireTimeout;
+    transactionPipelining = other.transactionPipelining;
+    chunking = other.chunking;
+    attachmentCacheSize = other.attachmentCacheSize;
+    dkimWorkerPoolName = other.dkimWorkerPoolName;
+    dkimWorkerPoolSize = other.dkimWorkerPoolSize;
   }
 
   /**
@@ -194,6 +244,32 @@ public class MailConfig extends NetClientOptions {
       dkimOps.stream().map(dkim -> new DKIMSignOptions((JsonObject)dkim)).forEach(dkimSignOptions::add);
     }
     pipelining = config.getBoolean("pipelining", DEFAULT_ENABLE_PIPELINING);
+    perContextPool = config.getBoolean("perContextPool", DEFAULT_PER_CONTEXT_POOL);
+    poolIdleTimeout = config.getInteger("poolIdleTimeout", DEFAULT_POOL_IDLE_TIMEOUT);
+    String poolIdleTimeoutUnitOption = config.getString("poolIdleTimeoutUnit");
+    if (poolIdleTimeoutUnitOption != null) {
+      poolIdleTimeoutUnit = TimeUnit.valueOf(poolIdleTimeoutUnitOption.toUpperCase(Locale.ENGLISH));
+    }
+    maxLifetime = config.getInteger("maxLifetime", DEFAULT_MAX_LIFETIME);
+    String maxLifetimeUnitOption = config.getString("maxLifetimeUnit");
+    if (maxLifetimeUnitOption != null) {
+      maxLifetimeUnit = TimeUnit.valueOf(maxLifetimeUnitOption.toUpperCase(Locale.ENGLISH));
+    }
+    maxMailsPerConnection = config.getInteger("maxMailsPerConnection", DEFAULT_MAX_MAILS_PER_CONNECTION);
+    poolCleanerPeriod = config.getInteger("poolCleanerPeriod", DEFAULT_POOL_CLEANER_PERIOD);
+    String connectionValidationOption = config.getString("connectionValidation");
+    if (connectionValidationOption != null) {
+      connectionValidation = ConnectionValidation.valueOf(connectionValidationOption.toUpperCase(Locale.ENGLISH));
+    }
+    validationIdleThreshold = config.getInteger("validationIdleThreshold", DEFAULT_VALIDATION_IDLE_THRESHOLD);
+    minIdle = config.getInteger("minIdle", DEFAULT_MIN_IDLE);
+    maxWaitQueueSize = config.getInteger("maxWaitQueueSize", DEFAULT_MAX_WAIT_QUEUE_SIZE);
+    connectionAcquireTimeout = config.getInteger("connectionAcquireTimeout", DEFAULT_CONNECTION_ACQUIRE_TIMEOUT);
+    transactionPipelining = config.getBoolean("transactionPipelining", DEFAULT_TRANSACTION_PIPELINING);
+    chunking = config.getBoolean("chunking", DEFAULT_CHUNKING);
+    attachmentCacheSize = config.getInteger("attachmentCacheSize", DEFAULT_ATTACHMENT_CACHE_SIZE);
+    dkimWorkerPoolName = config.getString("dkimWorkerPoolName");
+    dkimWorkerPoolSize = config.getInteger("dkimWorkerPoolSize", DEFAULT_DKIM_WORKER_POOL_SIZE);
   }
 
   public MailConfig setSendBufferSize(int sendBufferSize) {
@@ -915,6 +991,452 @@ public class MailConfig extends NetClientOptions {
     return this;
   }
 
+  /**
+   * get if the connection pool is split into one sub pool per event loop context
+   * default is false
+   *
+   * @return if per context pools are used
+   */
+  public boolean isPerContextPool() {
+    return perContextPool;
+  }
+
+  /**
+   * set if the connection pool is split into one sub pool per event loop context.
+   * <p>
+   * Each sub pool only touches its connections on its own context, so no lock is shared between the event loops.
+   * Idle connections are reused on the context that opened them, a sub pool only takes over idle connections of
+   * other contexts if it has no idle connection left. All sub pools share the maxPoolSize budget.
+   * default is false
+   *
+   * @param perContextPool use per context pools or not
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setPerContextPool(boolean perContextPool) {
+    this.perContextPool = perContextPool;
+    return this;
+  }
+
+  /**
+   * get the time after which an idle pooled connection is closed
+   * default is 0, idle connections are kept until the server closes them
+   *
+   * @return the pool idle timeout in {@link #getPoolIdleTimeoutUnit()}
+   */
+  public int getPoolIdleTimeout() {
+    return poolIdleTimeout;
+  }
+
+  /**
+   * set the time after which an idle pooled connection is closed with a QUIT command.
+   * <p>
+   * This should be shorter than the idle timeout of the server, so that a mail is never sent over a connection
+   * the server has already dropped.
+   * default is 0, idle connections are kept until the server closes them
+   *
+   * @param poolIdleTimeout the pool idle timeout in {@link #getPoolIdleTimeoutUnit()}
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setPoolIdleTimeout(int poolIdleTimeout) {
+    if (poolIdleTimeout < 0) {
+      throw new IllegalArgumentException("poolIdleTimeout must be >= 0");
+    }
+    this.poolIdleTimeout = poolIdleTimeout;
+    return this;
+  }
+
+  /**
+   * get the time unit of the pool idle timeout
+   * default is seconds
+   *
+   * @return the time unit of the pool idle timeout
+   */
+  public TimeUnit getPoolIdleTimeoutUnit() {
+    return poolIdleTimeoutUnit;
+  }
+
+  /**
+   * set the time unit of the pool idle timeout
+   * default is seconds
+   *
+   * @param poolIdleTimeoutUnit the time unit of the pool idle timeout
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setPoolIdleTimeoutUnit(TimeUnit poolIdleTimeoutUnit) {
+    this.poolIdleTimeoutUnit = poolIdleTimeoutUnit;
+    return this;
+  }
+
+  /**
+   * get the maximum time a pooled connection is kept open
+   * default is 0, connections are kept open as long as they are usable
+   *
+   * @return the max lifetime in {@link #getMaxLifetimeUnit()}
+   */
+  public int getMaxLifetime() {
+    return maxLifetime;
+  }
+
+  /**
+   * set the maximum time a pooled connection is kept open.
+   * <p>
+   * When a connection is older than this it is closed with a QUIT command when it becomes idle.
+   * default is 0, connections are kept open as long as they are usable
+   *
+   * @param maxLifetime the max lifetime in {@link #getMaxLifetimeUnit()}
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setMaxLifetime(int maxLifetime) {
+    if (maxLifetime < 0) {
+      throw new IllegalArgumentException("maxLifetime must be >= 0");
+    }
+    this.maxLifetime = maxLifetime;
+    return this;
+  }
+
+  /**
+   * get the time unit of the max lifetime
+   * default is seconds
+   *
+   * @return the time unit of the max lifetime
+   */
+  public TimeUnit getMaxLifetimeUnit() {
+    return maxLifetimeUnit;
+  }
+
+  /**
+   * set the time unit of the max lifetime
+   * default is seconds
+   *
+   * @param maxLifetimeUnit the time unit of the max lifetime
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setMaxLifetimeUnit(TimeUnit maxLifetimeUnit) {
+    this.maxLifetimeUnit = maxLifetimeUnit;
+    return this;
+  }
+
+  /**
+   * get the max number of mails sent over one connection before it is closed
+   * default is 0, which means no limit
+   *
+   * @return the max mails per connection
+   */
+  public int getMaxMailsPerConnection() {
+    return maxMailsPerConnection;
+  }
+
+  /**
+   * set the max number of mails sent over one connection before it is closed with a QUIT command
+   * default is 0, which means no limit
+   *
+   * @param maxMailsPerConnection the max mails per connection
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setMaxMailsPerConnection(int maxMailsPerConnection) {
+    if (maxMailsPerConnection < 0) {
+      throw new IllegalArgumentException("maxMailsPerConnection must be >= 0");
+    }
+    this.maxMailsPerConnection = maxMailsPerConnection;
+    return this;
+  }
+
+  /**
+   * get how often the pool checks for idle connections to close in milliseconds
+   * default is 1000
+   *
+   * @return the pool cleaner period in milliseconds
+   */
+  public int getPoolCleanerPeriod() {
+    return poolCleanerPeriod;
+  }
+
+  /**
+   * set how often the pool checks for idle connections that exceeded the pool idle timeout or the max lifetime.
+   * default is 1000
+   *
+   * @param poolCleanerPeriod the pool cleaner period in milliseconds
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setPoolCleanerPeriod(int poolCleanerPeriod) {
+    if (poolCleanerPeriod < 1) {
+      throw new IllegalArgumentException("poolCleanerPeriod must be > 0");
+    }
+    this.poolCleanerPeriod = poolCleanerPeriod;
+    return this;
+  }
+
+  /**
+   * get when an idle pooled connection is checked with a RSET command before it is used again
+   * default is ALWAYS
+   *
+   * @return the connection validation
+   */
+  public ConnectionValidation getConnectionValidation() {
+    return connectionValidation;
+  }
+
+  /**
+   * set when an idle pooled connection is checked with a RSET command before it is used again.
+   * <p>
+   * Either ALWAYS, IDLE or NEVER. With IDLE only connections that have been idle for longer than
+   * {@link #getValidationIdleThreshold()} are checked, this saves a round trip to the server for most mails.
+   * default is ALWAYS
+   *
+   * @param connectionValidation the connection validation
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setConnectionValidation(ConnectionValidation connectionValidation) {
+    this.connectionValidation = connectionValidation;
+    return this;
+  }
+
+  /**
+   * get the time in milliseconds a connection has to be idle before it is checked when the connection validation
+   * is IDLE
+   * default is 1000
+   *
+   * @return the validation idle threshold in milliseconds
+   */
+  public int getValidationIdleThreshold() {
+    return validationIdleThreshold;
+  }
+
+  /**
+   * set the time in milliseconds a connection has to be idle before it is checked when the connection validation
+   * is IDLE
+   * default is 1000
+   *
+   * @param validationIdleThreshold the validation idle threshold in milliseconds
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setValidationIdleThreshold(int validationIdleThreshold) {
+    if (validationIdleThreshold < 0) {
+      throw new IllegalArgumentException("validationIdleThreshold must be >= 0");
+    }
+    this.validationIdleThreshold = validationIdleThreshold;
+    return this;
+  }
+
+  /**
+   * get the number of idle connections the pool keeps open
+   * default is 0
+   *
+   * @return the min idle connections
+   */
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /**
+   * set the number of idle connections the pool keeps open.
+   * <p>
+   * Missing connections are opened in the background every {@link #getPoolCleanerPeriod()} milliseconds, after
+   * the first mail has been sent or after {@link MailClient#warmUp(int)}. If perContextPool is enabled, the
+   * idle connections are divided between the event loops. The pool keeps at most {@link #getMaxPoolSize()}
+   * idle connections.
+   * default is 0
+   *
+   * @param minIdle the min idle connections
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setMinIdle(int minIdle) {
+    if (minIdle < 0) {
+      throw new IllegalArgumentException("minIdle must be >= 0");
+    }
+    this.minIdle = minIdle;
+    return this;
+  }
+
+  /**
+   * get the max number of send operations waiting for a connection
+   * default is -1, which means no limit
+   *
+   * @return the max wait queue size
+   */
+  public int getMaxWaitQueueSize() {
+    return maxWaitQueueSize;
+  }
+
+  /**
+   * set the max number of send operations waiting for a connection when all connections of the pool are in use.
+   * <p>
+   * A send operation that does not fit into the wait queue fails immediately with a
+   * {@link ConnectionPoolBusyException}.
+   * default is -1, which means no limit
+   *
+   * @param maxWaitQueueSize the max wait queue size
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setMaxWaitQueueSize(int maxWaitQueueSize) {
+    if (maxWaitQueueSize < -1) {
+      throw new IllegalArgumentException("maxWaitQueueSize must be >= -1");
+    }
+    this.maxWaitQueueSize = maxWaitQueueSize;
+    return this;
+  }
+
+  /**
+   * get the time in milliseconds a send operation waits for a connection
+   * default is 0, which means no limit
+   *
+   * @return the connection acquire timeout in milliseconds
+   */
+  public int getConnectionAcquireTimeout() {
+    return connectionAcquireTimeout;
+  }
+
+  /**
+   * set the time in milliseconds a send operation waits for a connection when all connections of the pool are in
+   * use.
+   * <p>
+   * A send operation that did not get a connection in time fails with a {@link ConnectionPoolBusyException}.
+   * default is 0, which means no limit
+   *
+   * @param connectionAcquireTimeout the connection acquire timeout in milliseconds
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setConnectionAcquireTimeout(int connectionAcquireTimeout) {
+    if (connectionAcquireTimeout < 0) {
+      throw new IllegalArgumentException("connectionAcquireTimeout must be >= 0");
+    }
+    this.connectionAcquireTimeout = connectionAcquireTimeout;
+    return this;
+  }
+
+  /**
+   * get if the end of data of a mail and the envelope of the next mail are sent together
+   * default is false
+   *
+   * @return if transaction pipelining is enabled
+   */
+  public boolean isTransactionPipelining() {
+    return transactionPipelining;
+  }
+
+  /**
+   * set if the end of data of a mail and the envelope of the next mail on the same connection are sent together
+   * when {@link MailClient#sendMails(java.util.List)} sends several mails (RFC 2920).
+   * <p>
+   * This saves one round trip per mail. It is only used if pipelining is enabled and supported by the server.
+   * default is false
+   *
+   * @param transactionPipelining enable transaction pipelining or not
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setTransactionPipelining(boolean transactionPipelining) {
+    this.transactionPipelining = transactionPipelining;
+    return this;
+  }
+
+  /**
+   * get if the mail data is sent with BDAT if the server supports CHUNKING
+   * default is false
+   *
+   * @return if chunking is enabled
+   */
+  public boolean isChunking() {
+    return chunking;
+  }
+
+  /**
+   * set if the mail data is sent with BDAT chunks instead of DATA if the server supports CHUNKING (RFC 3030).
+   * <p>
+   * The data is sent as it is without dot-stuffing, if the server supports PIPELINING as well, the chunks are sent
+   * without waiting for the replies.
+   * default is false
+   *
+   * @param chunking enable chunking or not
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setChunking(boolean chunking) {
+    this.chunking = chunking;
+    return this;
+  }
+
+  /**
+   * get the max size in bytes of the encoded attachments kept in the attachment cache
+   * default is 0 (no cache)
+   *
+   * @return the attachment cache size
+   */
+  public int getAttachmentCacheSize() {
+    return attachmentCacheSize;
+  }
+
+  /**
+   * set the max size in bytes of the encoded attachments kept in the attachment cache.
+   * <p>
+   * Attachments with data in memory are base64 encoded once and the encoded form is reused by the following mails
+   * sent with the same data. The cache key is the cache key of the attachment or else the identity of the data
+   * buffer, the data is not hashed, so attachments without cache key share the encoded data only when they use the
+   * same buffer instance.
+   * The least recently used attachments are removed when the size is exceeded.
+   * default is 0 (no cache)
+   *
+   * @param attachmentCacheSize the max size of the cached encoded attachments
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setAttachmentCacheSize(int attachmentCacheSize) {
+    if (attachmentCacheSize < 0) {
+      throw new IllegalArgumentException("attachmentCacheSize must be >= 0");
+    }
+    this.attachmentCacheSize = attachmentCacheSize;
+    return this;
+  }
+
+  /**
+   * get the name of the worker pool that computes the DKIM body hashes and signatures
+   * default is null (the DKIM work runs on the context of the send operation)
+   *
+   * @return the name of the DKIM worker pool
+   */
+  public String getDkimWorkerPoolName() {
+    return dkimWorkerPoolName;
+  }
+
+  /**
+   * set the name of the worker pool that computes the DKIM body hashes and signatures.
+   * <p>
+   * The hashing of the message body and the RSA signing are run on a shared {@link io.vertx.core.WorkerExecutor} with
+   * this name instead of the event loop, the mail is sent on the context of the send operation when the DKIM
+   * signatures are ready. Clients with the same pool name share the worker pool.
+   * default is null (the DKIM work runs on the context of the send operation)
+   *
+   * @param dkimWorkerPoolName the name of the DKIM worker pool
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setDkimWorkerPoolName(String dkimWorkerPoolName) {
+    this.dkimWorkerPoolName = dkimWorkerPoolName;
+    return this;
+  }
+
+  /**
+   * get the max number of threads of the DKIM worker pool
+   * default is 4
+   *
+   * @return the DKIM worker pool size
+   */
+  public int getDkimWorkerPoolSize() {
+    return dkimWorkerPoolSize;
+  }
+
+  /**
+   * set the max number of threads of the DKIM worker pool, it is used only when the pool is created by the first
+   * client with the pool name.
+   * default is 4
+   *
+   * @param dkimWorkerPoolSize the DKIM worker pool size
+   * @return this to be able to use the object fluently
+   */
+  public MailConfig setDkimWorkerPoolSize(int dkimWorkerPoolSize) {
+    if (dkimWorkerPoolSize < 1) {
+      throw new IllegalArgumentException("dkimWorkerPoolSize must be > 0");
+    }
+    this.dkimWorkerPoolSize = dkimWorkerPoolSize;
+    return this;
+  }
+
   /**
    * convert config object to Json representation
    *
@@ -966,13 +1488,67 @@ public class MailConfig extends NetClientOptions {
       json.put("dkimSignOptions", array);
     }
     json.put("pipelining", pipelining);
+    if (perContextPool) {
+      json.put("perContextPool", true);
+    }
+    if (poolIdleTimeout != DEFAULT_POOL_IDLE_TIMEOUT) {
+      json.put("poolIdleTimeout", poolIdleTimeout);
+    }
+    if (poolIdleTimeoutUnit != DEFAULT_POOL_IDLE_TIMEOUT_UNIT) {
+      json.put("poolIdleTimeoutUnit", poolIdleTimeoutUnit);
+    }
+    if (maxLifetime != DEFAULT_MAX_LIFETIME) {
+      json.put("maxLifetime", maxLifetime);
+    }
+    if (maxLifetimeUnit != DEFAULT_MAX_LIFETIME_UNIT) {
+      json.put("maxLifetimeUnit", maxLifetimeUnit);
+    }
+    if (maxMailsPerConnection != DEFAULT_MAX_MAILS_PER_CONNECTION) {
+      json.put("maxMailsPerConnection", maxMailsPerConnection);
+    }
+    if (poolCleanerPeriod != DEFAULT_POOL_CLEANER_PERIOD) {
+      json.put("poolCleanerPeriod", poolCleanerPeriod);
+    }
+    if (connectionValidation != DEFAULT_CONNECTION_VALIDATION) {
+      json.put("connectionValidation", connectionValidation);
+    }
+    if (validationIdleThreshold != DEFAULT_VALIDATION_IDLE_THRESHOLD) {
+      json.put("validationIdleThreshold", validationIdleThreshold);
+    }
+    if (minIdle != DEFAULT_MIN_IDLE) {
+      json.put("minIdle", minIdle);
+    }
+    if (maxWaitQueueSize != DEFAULT_MAX_WAIT_QUEUE_SIZE) {
+      json.put("maxWaitQueueSize", maxWaitQueueSize);
+    }
+    if (connectionAcquireTimeout != DEFAULT_CONNECTION_ACQUIRE_TIMEOUT) {
+      json.put("connectionAcquireTimeout", connectionAcquireTimeout);
+    }
+    if (transactionPipelining != DEFAULT_TRANSACTION_PIPELINING) {
+      json.put("transactionPipelining", transactionPipelining);
+    }
+    if (chunking != DEFAULT_CHUNKING) {
+      json.put("chunking", chunking);
+    }
+    if (attachmentCacheSize != DEFAULT_ATTACHMENT_CACHE_SIZE) {
+      json.put("attachmentCacheSize", attachmentCacheSize);
+    }
+    if (dkimWorkerPoolName != null) {
+      json.put("dkimWorkerPoolName", dkimWorkerPoolName);
+    }
+    if (dkimWorkerPoolSize != DEFAULT_DKIM_WORKER_POOL_SIZE) {
+      json.put("dkimWorkerPoolSize", dkimWorkerPoolSize);
+    }
 
     return json;
   }
 
   private List<Object> getList() {
     return Arrays.asList(hostname, port, starttls, login, username, password, authMethods, ownHostname, maxPoolSize,
-      keepAlive, allowRcptErrors, disableEsmtp, userAgent, enableDKIM, dkimSignOptions, pipelining);
+      keepAlive, allowRcptErrors, disableEsmtp, userAgent, enableDKIM, dkimSignOptions, pipelining, perContextPool,
+      poolIdleTimeout, poolIdleTimeoutUnit, maxLifetime, maxLifetimeUnit, maxMailsPerConnection, poolCleanerPeriod,
+      connectionValidation, validationIdleThreshold, minIdle, maxWaitQueueSize, connectionAcquireTimeout,
+      transactionPipelining, chunking, attachmentCacheSize, dkimWorkerPoolName, dkimWorkerPoolSize);
   }
 
   /*
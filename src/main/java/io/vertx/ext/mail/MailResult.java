@@ -17,6 +17,7 @@
 package io.vertx.ext.mail;
 
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -33,6 +34,7 @@ public class MailResult {
 
   private String messageID;
   private List<String> recipients;
+  private Throwable cause;
 
   public MailResult() {
     messageID = null;
@@ -42,6 +44,7 @@ public class MailResult {
   public MailResult(MailResult other) {
     messageID = other.messageID;
     recipients = new ArrayList<>(other.recipients);
+    cause = other.cause;
   }
 
   @SuppressWarnings("unchecked")
@@ -92,6 +95,26 @@ public class MailResult {
     return this;
   }
 
+  /**
+   * get the cause of the failure of a mail sent with {@link MailClient#sendMails(java.util.List)}, the other mails
+   * of the operation are sent anyway. The cause is not part of the JSON of the result.
+   *
+   * @return the cause or null if the mail has been sent
+   */
+  @GenIgnore
+  public Throwable getCause() {
+    return cause;
+  }
+
+  /**
+   * @param cause the cause of the failure to set
+   */
+  @GenIgnore
+  public MailResult setCause(Throwable cause) {
+    this.cause = cause;
+    return this;
+  }
+
   public String toString() {
     return toJson().encode();
   }
@@ -0,0 +1,183 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.NoStackTraceThrowable;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * WriteStream sending the mail data as BDAT chunks (RFC 3030).
+ * <p>
+ * The data is cut into chunks of {@link #CHUNK_SIZE} bytes, each chunk is sent as one BDAT command and its
+ * content in one write. The data is sent as it is, there is no dot-stuffing. If the server supports PIPELINING,
+ * the chunks are sent without waiting for the replies, otherwise the next chunk waits for the reply to the previous.
+ * <p>
+ * {@link #end(Handler)} sends the remaining data with BDAT LAST and succeeds when the server has accepted the mail.
+ */
+class BdatWriteStream implements WriteStream<Buffer> {
+
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final SMTPConnection connection;
+  private final boolean pipelining;
+  private Buffer chunk = Buffer.buffer();
+  // full chunks waiting for the reply to the previous BDAT command
+  private final Deque<Buffer> waiting = new ArrayDeque<>();
+  private int inFlight;
+  private boolean ended;
+  private Throwable failure;
+  private Promise<Void> endPromise;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<Void> drainHandler;
+
+  BdatWriteStream(SMTPConnection connection, boolean pipelining) {
+    this.connection = connection;
+    this.pipelining = pipelining;
+  }
+
+  @Override
+  public BdatWriteStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public Future<Void> write(Buffer data) {
+    if (failure != null) {
+      return Future.failedFuture(failure);
+    }
+    if (ended) {
+      return Future.failedFuture(new IllegalStateException("BDAT stream has been ended"));
+    }
+    chunk.appendBuffer(data);
+    if (chunk.length() >= CHUNK_SIZE) {
+      while (chunk.length() >= CHUNK_SIZE) {
+        waiting.add(chunk.getBuffer(0, CHUNK_SIZE));
+        chunk = chunk.getBuffer(CHUNK_SIZE, chunk.length());
+      }
+      flush();
+    }
+    return Future.succeededFuture();
+  }
+
+  @Override
+  public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+    Future<Void> future = write(data);
+    if (handler != null) {
+      future.onComplete(handler);
+    }
+  }
+
+  @Override
+  public void end(Handler<AsyncResult<Void>> handler) {
+    if (endPromise == null) {
+      endPromise = Promise.promise();
+      if (failure != null) {
+        endPromise.fail(failure);
+      } else {
+        ended = true;
+        waiting.add(chunk);
+        chunk = null;
+        flush();
+      }
+    }
+    if (handler != null) {
+      endPromise.future().onComplete(handler);
+    }
+  }
+
+  @Override
+  public BdatWriteStream setWriteQueueMaxSize(int maxSize) {
+    return this;
+  }
+
+  @Override
+  public boolean writeQueueFull() {
+    return !waiting.isEmpty() || connection.getSocket() != null && connection.getSocket().writeQueueFull();
+  }
+
+  @Override
+  public BdatWriteStream drainHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
+    checkDrain();
+    return this;
+  }
+
+  // waiting chunks are sent when the reply to the previous chunk arrives, which calls this method again
+  private void checkDrain() {
+    if (drainHandler != null && waiting.isEmpty()) {
+      final NetSocket socket = connection.getSocket();
+      if (socket != null && socket.writeQueueFull()) {
+        socket.drainHandler(v -> {
+          socket.drainHandler(null);
+          checkDrain();
+        });
+      } else {
+        Handler<Void> handler = drainHandler;
+        drainHandler = null;
+        handler.handle(null);
+      }
+    }
+  }
+
+  private void flush() {
+    while (failure == null && !waiting.isEmpty() && (pipelining || inFlight == 0)) {
+      final Buffer data = waiting.poll();
+      final boolean last = ended && waiting.isEmpty();
+      final String command = "BDAT " + data.length() + (last ? " LAST" : "");
+      inFlight++;
+      connection.writeChunk(command, data, reply -> {
+        inFlight--;
+        if (failure != null) {
+          // the replies to the chunks pipelined after a failed one don't matter anymore
+          return;
+        }
+        if (!StatusCode.isStatusOk(reply)) {
+          fail(new NoStackTraceThrowable("sending data failed: " + reply));
+        } else if (last) {
+          endPromise.tryComplete();
+        } else {
+          flush();
+          checkDrain();
+        }
+      });
+    }
+  }
+
+  private void fail(Throwable cause) {
+    if (failure == null) {
+      failure = cause;
+      waiting.clear();
+      if (endPromise != null) {
+        endPromise.tryFail(cause);
+      } else if (exceptionHandler != null) {
+        exceptionHandler.handle(cause);
+      }
+      checkDrain();
+    }
+  }
+
+}
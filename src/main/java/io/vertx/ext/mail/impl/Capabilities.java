@@ -56,6 +56,16 @@ class Capabilities {
    */
   private boolean capaPipelining;
 
+  /**
+   * if the server supports CHUNKING, i.e. the BDAT command (RFC 3030)
+   */
+  private boolean capaChunking;
+
+  /**
+   * if the server supports BINARYMIME (RFC 3030)
+   */
+  private boolean capaBinaryMime;
+
   /**
    * @return Set of Strings of capabilities
    */
@@ -77,6 +87,20 @@ class Capabilities {
     return capaPipelining;
   }
 
+  /**
+   * @return if the server supports CHUNKING
+   */
+  boolean isCapaChunking() {
+    return capaChunking;
+  }
+
+  /**
+   * @return if the server supports BINARYMIME
+   */
+  boolean isCapaBinaryMime() {
+    return capaBinaryMime;
+  }
+
   /**
    * @return if the server supports STARTTLS
    */
@@ -103,6 +127,12 @@ class Capabilities {
       if (c.equals("PIPELINING")) {
         capaPipelining = true;
       }
+      if (c.equals("CHUNKING")) {
+        capaChunking = true;
+      }
+      if (c.equals("BINARYMIME")) {
+        capaBinaryMime = true;
+      }
       if (c.startsWith("AUTH ")) {
         capaAuth = Utils.parseCapaAuth(c.substring(5));
       }
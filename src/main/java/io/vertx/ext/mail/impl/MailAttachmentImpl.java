@@ -41,6 +41,8 @@ public class MailAttachmentImpl implements MailAttachment {
   private String disposition;
   private String description;
   private String contentId;
+  private String cacheKey;
+  private String filePath;
   private MultiMap headers;
 
   /**
@@ -64,6 +66,8 @@ public class MailAttachmentImpl implements MailAttachment {
     this.description = other.description;
     this.description = other.description;
     this.contentId = other.contentId;
+    this.cacheKey = other.cacheKey;
+    this.filePath = other.filePath;
     this.headers = other.headers == null ? null : MultiMap.caseInsensitiveMultiMap().addAll(other.headers);
     this.size = other.size;
     this.stream = other.stream;
@@ -82,6 +86,8 @@ public class MailAttachmentImpl implements MailAttachment {
     this.disposition = json.getString("disposition");
     this.description = json.getString("description");
     this.contentId = json.getString("contentId");
+    this.cacheKey = json.getString("cacheKey");
+    this.filePath = json.getString("filePath");
     JsonObject headers = json.getJsonObject("headers");
     if (headers != null) {
       this.headers = Utils.jsonToMultiMap(headers);
@@ -180,6 +186,28 @@ public class MailAttachmentImpl implements MailAttachment {
     return this;
   }
 
+  @Override
+  public String getCacheKey() {
+    return cacheKey;
+  }
+
+  @Override
+  public MailAttachment setCacheKey(final String cacheKey) {
+    this.cacheKey = cacheKey;
+    return this;
+  }
+
+  @Override
+  public String getFilePath() {
+    return filePath;
+  }
+
+  @Override
+  public MailAttachment setFilePath(final String filePath) {
+    this.filePath = filePath;
+    return this;
+  }
+
   @Override
   public MailAttachment addHeader(String key, String value) {
     if (headers == null) {
@@ -213,6 +241,8 @@ public class MailAttachmentImpl implements MailAttachment {
     Utils.putIfNotNull(json, "disposition", disposition);
     Utils.putIfNotNull(json, "description", description);
     Utils.putIfNotNull(json, "contentId", contentId);
+    Utils.putIfNotNull(json, "cacheKey", cacheKey);
+    Utils.putIfNotNull(json, "filePath", filePath);
     if (headers != null) {
       json.put("headers", Utils.multiMapToJson(headers));
     }
@@ -223,7 +253,7 @@ public class MailAttachmentImpl implements MailAttachment {
   }
 
   private List<Object> getList() {
-    return Arrays.asList(data, name, disposition, description, contentId, headers, size);
+    return Arrays.asList(data, name, disposition, description, contentId, cacheKey, filePath, headers, size);
   }
 
   @Override
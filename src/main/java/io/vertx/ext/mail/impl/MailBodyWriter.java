@@ -0,0 +1,111 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl;
+
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * writes the body of a mail part to a WriteStream.
+ * <p>
+ * The body is scanned once, LF and CRLF line ends are written as CRLF and lines starting with a dot get another
+ * dot if dot-stuffing is required (i.e. for DATA). Line breaks at the end of the body are dropped, the body always
+ * ends with one CRLF. The output is collected into buffers of about {@link #BUFFER_SIZE} bytes, when the write queue
+ * of the stream is full, writing continues in the drain handler.
+ */
+class MailBodyWriter {
+
+  static final int BUFFER_SIZE = 32 * 1024;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final byte DOT = '.';
+
+  private final WriteStream<Buffer> out;
+  private final boolean dotStuffing;
+
+  MailBodyWriter(WriteStream<Buffer> out, boolean dotStuffing) {
+    this.out = out;
+    this.dotStuffing = dotStuffing;
+  }
+
+  /**
+   * write the body, the promise is completed with the result of the last write
+   *
+   * @param body    the body with LF or CRLF line ends
+   * @param promise the promise to complete when the body has been written
+   */
+  void write(String body, Promise<Void> promise) {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    int end = bytes.length;
+    while (end > 0 && (bytes[end - 1] == LF || bytes[end - 1] == CR)) {
+      end--;
+    }
+    if (end == 0 && bytes.length > 0) {
+      // only line breaks
+      promise.complete();
+    } else {
+      write(bytes, 0, end, promise);
+    }
+  }
+
+  private void write(byte[] bytes, int start, int end, Promise<Void> promise) {
+    int pos = start;
+    while (!out.writeQueueFull()) {
+      final Buffer buffer = Buffer.buffer(Math.min(BUFFER_SIZE, end - pos) + 128);
+      pos = fill(buffer, bytes, pos, end);
+      if (pos >= end) {
+        buffer.appendByte(CR).appendByte(LF);
+        out.write(buffer).onComplete(promise);
+        return;
+      }
+      out.write(buffer);
+    }
+    final int next = pos;
+    out.drainHandler(v -> {
+      // avoid getting confused by being called twice
+      out.drainHandler(null);
+      write(bytes, next, end, promise);
+    });
+  }
+
+  // appends whole lines starting at pos until the buffer is full, returns the start of the next line
+  private int fill(Buffer buffer, byte[] bytes, int pos, int end) {
+    while (pos < end && buffer.length() < BUFFER_SIZE) {
+      if (dotStuffing && bytes[pos] == DOT) {
+        buffer.appendByte(DOT);
+      }
+      int lineEnd = pos;
+      while (lineEnd < end && bytes[lineEnd] != LF) {
+        lineEnd++;
+      }
+      if (lineEnd == end) {
+        // the last line, the final CRLF is added by the caller
+        buffer.appendBytes(bytes, pos, end - pos);
+        return end;
+      }
+      final int contentEnd = lineEnd > pos && bytes[lineEnd - 1] == CR ? lineEnd - 1 : lineEnd;
+      buffer.appendBytes(bytes, pos, contentEnd - pos).appendByte(CR).appendByte(LF);
+      pos = lineEnd + 1;
+    }
+    return pos;
+  }
+
+}
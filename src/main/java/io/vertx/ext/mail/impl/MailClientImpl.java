@@ -17,21 +17,30 @@
 package io.vertx.ext.mail.impl;
 
 import io.vertx.core.*;
+import io.vertx.core.impl.NoStackTraceThrowable;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
 import io.vertx.core.shareddata.Shareable;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mail.MailAttachment;
 import io.vertx.ext.mail.MailClient;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.MailMessage;
 import io.vertx.ext.mail.MailResult;
 import io.vertx.ext.mail.impl.dkim.DKIMSigner;
+import io.vertx.ext.mail.mailencoder.EncodedAttachmentCache;
 import io.vertx.ext.mail.mailencoder.EncodedPart;
 import io.vertx.ext.mail.mailencoder.MailEncoder;
+import io.vertx.ext.mail.mailencoder.MailTemplate;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -58,6 +67,8 @@ public class MailClientImpl implements MailClient {
   // DKIMSigners may be initialized in the constructor to reuse on each send.
   // the constructor may throw IllegalStateException because of wrong DKIM configuration.
   private final List<DKIMSigner> dkimSigners;
+  // the worker pool of the DKIM body hashing and signing, null to run them on the context
+  private final WorkerExecutor dkimExecutor;
 
   public MailClientImpl(Vertx vertx, MailConfig config, String poolName) {
     this.vertx = vertx;
@@ -65,8 +76,12 @@ public class MailClientImpl implements MailClient {
     this.holder = lookupHolder(poolName, config);
     this.connectionPool = holder.pool();
     if (config != null && config.isEnableDKIM() && config.getDKIMSignOptions() != null) {
-      dkimSigners = config.getDKIMSignOptions().stream().map(ops -> new DKIMSigner(ops, vertx)).collect(Collectors.toList());
+      dkimExecutor = config.getDkimWorkerPoolName() == null ? null
+        : vertx.createSharedWorkerExecutor(config.getDkimWorkerPoolName(), config.getDkimWorkerPoolSize());
+      dkimSigners = config.getDKIMSignOptions().stream().map(ops -> new DKIMSigner(ops, vertx, dkimExecutor))
+        .collect(Collectors.toList());
     } else {
+      dkimExecutor = null;
       dkimSigners = Collections.emptyList();
     }
   }
@@ -77,6 +92,9 @@ public class MailClientImpl implements MailClient {
       throw new IllegalStateException("Already closed");
     }
     holder.close();
+    if (dkimExecutor != null) {
+      dkimExecutor.close();
+    }
     closed = true;
   }
 
@@ -85,28 +103,16 @@ public class MailClientImpl implements MailClient {
     Context context = vertx.getOrCreateContext();
     if (!closed) {
       if (validateHeaders(message, resultHandler, context)) {
-        if (hostname == null) {
-          vertx.<String>executeBlocking(
-              fut -> {
-                String hname;
-                if (config.getOwnHostname() != null) {
-                  hname = config.getOwnHostname();
-                } else {
-                  hname = Utils.getHostname();
-                }
-                fut.complete(hname);
-              },
-              res -> {
-                if (res.succeeded()) {
-                  hostname = res.result();
-                  getConnection(message, resultHandler, context);
-                } else {
-                  handleError(res.cause(), resultHandler, context);
-                }
-              });
-        } else {
-          getConnection(message, resultHandler, context);
-        }
+        resolveHostname(res -> {
+          if (res.succeeded()) {
+            Batch batch = new Batch(context, null,
+              resultHandler == null ? null : result -> resultHandler.handle(mailResult(result)));
+            batch.add(message);
+            batch.end();
+          } else {
+            handleError(res.cause(), resultHandler, context);
+          }
+        });
       }
     } else {
       handleError("mail client has been closed", resultHandler, context);
@@ -114,76 +120,230 @@ public class MailClientImpl implements MailClient {
     return this;
   }
 
-  private void getConnection(MailMessage message, Handler<AsyncResult<MailResult>> resultHandler, Context context) {
-    connectionPool.getConnection(hostname, result -> {
-      if (result.succeeded()) {
-        final SMTPConnection connection = result.result();
-        connection.setErrorHandler(th -> handleError(th, resultHandler, context));
-        sendMessage(message, connection, resultHandler, context);
-      } else {
-        handleError(result.cause(), resultHandler, context);
-      }
-    });
+  // the result of a batch of one mail
+  private static AsyncResult<MailResult> mailResult(AsyncResult<List<MailResult>> result) {
+    if (result.failed()) {
+      return Future.failedFuture(result.cause());
+    }
+    final MailResult mailResult = result.result().get(0);
+    return mailResult.getCause() == null
+      ? Future.succeededFuture(mailResult) : Future.failedFuture(mailResult.getCause());
+  }
+
+  @Override
+  public MailClient sendMails(List<MailMessage> messages, Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    Context context = vertx.getOrCreateContext();
+    if (!closed) {
+      resolveHostname(res -> {
+        if (res.succeeded()) {
+          Batch batch = new Batch(context, null, resultHandler);
+          messages.forEach(batch::add);
+          batch.end();
+        } else {
+          returnResult(Future.failedFuture(res.cause()), resultHandler, context);
+        }
+      });
+    } else {
+      returnResult(Future.failedFuture("mail client has been closed"), resultHandler, context);
+    }
+    return this;
+  }
+
+  @Override
+  public MailClient sendMails(ReadStream<MailMessage> messages, Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    Context context = vertx.getOrCreateContext();
+    if (!closed) {
+      messages.pause();
+      resolveHostname(res -> {
+        if (res.succeeded()) {
+          Batch batch = new Batch(context, messages, resultHandler);
+          messages.exceptionHandler(batch::fail);
+          messages.endHandler(v -> batch.end());
+          messages.handler(batch::add);
+          messages.resume();
+        } else {
+          returnResult(Future.failedFuture(res.cause()), resultHandler, context);
+        }
+      });
+    } else {
+      returnResult(Future.failedFuture("mail client has been closed"), resultHandler, context);
+    }
+    return this;
+  }
+
+  @Override
+  public MailClient sendMails(MailMessage template, List<JsonObject> values,
+                              Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    Context context = vertx.getOrCreateContext();
+    if (!closed) {
+      resolveHostname(res -> {
+        if (res.succeeded()) {
+          compileTemplate(template, context).onComplete(compiled -> {
+            if (compiled.failed()) {
+              returnResult(Future.failedFuture(compiled.cause()), resultHandler, context);
+              return;
+            }
+            Batch batch = new Batch(context, null, resultHandler);
+            values.forEach(v -> batch.add(compiled.result(), v));
+            batch.end();
+          });
+        } else {
+          returnResult(Future.failedFuture(res.cause()), resultHandler, context);
+        }
+      });
+    } else {
+      returnResult(Future.failedFuture("mail client has been closed"), resultHandler, context);
+    }
+    return this;
+  }
+
+  @Override
+  public MailClient warmUp(int connections, Handler<AsyncResult<Void>> resultHandler) {
+    Context context = vertx.getOrCreateContext();
+    if (!closed) {
+      resolveHostname(res -> {
+        if (res.succeeded()) {
+          connectionPool.warmUp(hostname, connections, result -> context.runOnContext(v -> {
+            if (resultHandler != null) {
+              resultHandler.handle(result);
+            }
+          }));
+        } else {
+          context.runOnContext(v -> {
+            if (resultHandler != null) {
+              resultHandler.handle(Future.failedFuture(res.cause()));
+            }
+          });
+        }
+      });
+    } else if (resultHandler != null) {
+      context.runOnContext(v -> resultHandler.handle(Future.failedFuture("mail client has been closed")));
+    }
+    return this;
+  }
+
+  private void resolveHostname(Handler<AsyncResult<Void>> handler) {
+    if (hostname == null) {
+      vertx.<String>executeBlocking(
+          fut -> {
+            String hname;
+            if (config.getOwnHostname() != null) {
+              hname = config.getOwnHostname();
+            } else {
+              hname = Utils.getHostname();
+            }
+            fut.complete(hname);
+          },
+          res -> {
+            if (res.succeeded()) {
+              hostname = res.result();
+              handler.handle(Future.succeededFuture());
+            } else {
+              handler.handle(Future.failedFuture(res.cause()));
+            }
+          });
+    } else {
+      handler.handle(Future.succeededFuture());
+    }
   }
 
   private Future<Void> dkimFuture(Context context, EncodedPart encodedPart) {
-    List<Future> dkimFutures = new ArrayList<>();
+    List<Future<String>> dkimFutures = new ArrayList<>();
     // run dkim sign, and add email header after that.
-    dkimSigners.forEach(dkim -> dkimFutures.add(dkim.signEmail(context, encodedPart)));
-    return CompositeFuture.all(dkimFutures).map(f -> {
-      List<String> dkimHeaders = dkimFutures.stream().map(fr -> fr.result().toString()).collect(Collectors.toList());
+    // the body hashes of all signers are computed in one walk through the message
+    Future<Map<String, String>> bodyHashes = DKIMSigner.bodyHashes(context, encodedPart, dkimSigners, dkimExecutor);
+    dkimSigners.forEach(dkim ->
+      dkimFutures.add(dkim.signEmail(encodedPart, bodyHashes.map(bhs -> bhs.get(dkim.bodyHashKey())))));
+    // wait for all signatures, they run concurrently
+    Future<Void> signed = Future.succeededFuture();
+    for (Future<String> dkimFuture : dkimFutures) {
+      signed = signed.compose(v -> dkimFuture.mapEmpty());
+    }
+    return signed.map(v -> {
+      List<String> dkimHeaders = dkimFutures.stream().map(Future::result).collect(Collectors.toList());
       encodedPart.headers().add(DKIMSigner.DKIM_SIGNATURE_HEADER, dkimHeaders);
       return null;
     });
   }
 
-  private void sendMessage(MailMessage email, SMTPConnection conn, Handler<AsyncResult<MailResult>> resultHandler,
-      Context context) {
-    final Handler<AsyncResult<MailResult>> sentResultHandler = result -> {
-      if (result.succeeded()) {
-        conn.returnToPool();
-      } else {
-        conn.setBroken();
-      }
-      returnResult(result, resultHandler, context);
-    };
+  // the files of the attachments are opened and mapped on a worker thread
+  private Future<MailTemplate> compileTemplate(MailMessage template, Context context) {
+    if (hasFileAttachment(template)) {
+      return context.executeBlocking(promise ->
+        promise.complete(new MailTemplate(template, hostname, holder.attachmentCache())), false);
+    }
     try {
-      final MailEncoder encoder = new MailEncoder(email, hostname);
-      final EncodedPart encodedPart = encoder.encodeMail();
-      final String messageId = encoder.getMessageID();
+      return Future.succeededFuture(new MailTemplate(template, hostname, holder.attachmentCache()));
+    } catch (Exception e) {
+      return Future.failedFuture(e);
+    }
+  }
 
-      final SMTPSendMail sendMail = new SMTPSendMail(conn, email, config, encodedPart, messageId);
-      if (dkimSigners.isEmpty()) {
-        sendMail.startMailTransaction(sentResultHandler);
-      } else {
-        // generate the DKIM header before start
-        dkimFuture(context, encodedPart).onComplete(dkim -> context.runOnContext(h -> {
-          if (dkim.succeeded()) {
-            sendMail.startMailTransaction(sentResultHandler);
-          } else {
-            sentResultHandler.handle(Future.failedFuture(dkim.cause()));
-          }
-        }));
+  private Future<EncodedMail> encodeMail(Pending pending, Context context) {
+    final Future<EncodedMail> encoded;
+    if (pending.template == null && hasFileAttachment(pending.email)) {
+      // the files of the attachments are opened and mapped on a worker thread
+      encoded = context.executeBlocking(promise -> promise.complete(encode(pending)), false);
+    } else {
+      try {
+        encoded = Future.succeededFuture(encode(pending));
+      } catch (Exception e) {
+        return Future.failedFuture(e);
       }
-    } catch (Exception e) {
-      handleError(e, sentResultHandler, context);
     }
+    if (dkimSigners.isEmpty()) {
+      return encoded;
+    }
+    // generate the DKIM header before start
+    return encoded.compose(mail -> dkimFuture(context, mail.encodedPart).map(mail));
+  }
+
+  private EncodedMail encode(Pending pending) {
+    final MailEncoder encoder = pending.template != null
+      ? pending.template.encoder(pending.email, pending.values)
+      : new MailEncoder(pending.email, hostname).setAttachmentCache(holder.attachmentCache());
+    final EncodedPart encodedPart = encoder.encodeMail();
+    return new EncodedMail(encodedPart, encoder.getMessageID());
+  }
+
+  private static boolean hasFileAttachment(MailMessage email) {
+    return hasFileAttachment(email.getAttachment()) || hasFileAttachment(email.getInlineAttachment());
+  }
+
+  private static boolean hasFileAttachment(List<MailAttachment> attachments) {
+    if (attachments != null) {
+      for (MailAttachment a : attachments) {
+        if (a.getData() == null && a.getStream() == null && a.getFilePath() != null) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   // do some validation before we open the connection
   // return true on successful validation so we can stop processing above
   private boolean validateHeaders(MailMessage email, Handler<AsyncResult<MailResult>> resultHandler, Context context) {
-    if (email.getBounceAddress() == null && email.getFrom() == null) {
-      handleError("sender address is not present", resultHandler, context);
+    String error = headerError(email);
+    if (error != null) {
+      handleError(error, resultHandler, context);
       return false;
+    } else {
+      return true;
+    }
+  }
+
+  // returns null if the mail can be sent
+  private static String headerError(MailMessage email) {
+    if (email.getBounceAddress() == null && email.getFrom() == null) {
+      return "sender address is not present";
     } else if ((email.getTo() == null || email.getTo().size() == 0)
         && (email.getCc() == null || email.getCc().size() == 0)
         && (email.getBcc() == null || email.getBcc().size() == 0)) {
       log.warn("no recipient addresses are present");
-      handleError("no recipient addresses are present", resultHandler, context);
-      return false;
+      return "no recipient addresses are present";
     } else {
-      return true;
+      return null;
     }
   }
 
@@ -197,7 +357,7 @@ public class MailClientImpl implements MailClient {
     returnResult(Future.failedFuture(t), resultHandler, context);
   }
 
-  private void returnResult(AsyncResult<MailResult> result, Handler<AsyncResult<MailResult>> resultHandler, Context context) {
+  private <T> void returnResult(AsyncResult<T> result, Handler<AsyncResult<T>> resultHandler, Context context) {
     // Note - results must always be executed on the right context, asynchronously, not directly!
     context.runOnContext(v -> {
       if (resultHandler != null) {
@@ -239,20 +399,360 @@ public class MailClientImpl implements MailClient {
     }
   }
 
+  private static class EncodedMail {
+    final EncodedPart encodedPart;
+    final String messageId;
+
+    EncodedMail(EncodedPart encodedPart, String messageId) {
+      this.encodedPart = encodedPart;
+      this.messageId = messageId;
+    }
+  }
+
+  /**
+   * sends mails over up to maxPoolSize connections in parallel. Each connection sends one mail after the other
+   * without going back to the pool in between, a mail transaction that succeeded leaves the connection in the
+   * initial state, so there is no RSET between the mails.
+   * <p>
+   * With transaction pipelining, the next mail of a connection is encoded while the current one is sent and its
+   * envelope is sent together with the end of data of the current one. If the end of data is rejected, the next
+   * mail has not been attempted and is sent again.
+   * <p>
+   * A mail that fails gets a result with the cause of the failure and the other mails are sent anyway, a connection
+   * that failed during a mail is closed and the lane continues with a new one. A lane that cannot get a connection
+   * ends and leaves its mails to the other lanes. Only the errors of the batch itself, when no lane can get a
+   * connection or the stream of mails fails, fail the whole batch, the mails that have not been started yet are not
+   * sent then.
+   * <p>
+   * All state is only touched on the context of the caller, the mail transactions run on the context of their
+   * connection.
+   */
+  private class Batch {
+
+    private final Context context;
+    private final ReadStream<MailMessage> stream;
+    private final Handler<AsyncResult<List<MailResult>>> resultHandler;
+    private final int maxLanes;
+    // the results in the order of the mails, a mail in progress has a null result, a failed mail has a cause
+    private final List<MailResult> results = new ArrayList<>();
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    // the number of connections sending mails of this batch
+    private int lanes;
+    private boolean paused;
+    private boolean ended;
+    private boolean failed;
+
+    Batch(Context context, ReadStream<MailMessage> stream, Handler<AsyncResult<List<MailResult>>> resultHandler) {
+      this.context = context;
+      this.stream = stream;
+      this.resultHandler = resultHandler;
+      this.maxLanes = Math.max(1, config.getMaxPoolSize());
+    }
+
+    void add(MailMessage email) {
+      add(email, null, null);
+    }
+
+    void add(MailTemplate template, JsonObject values) {
+      if (failed) {
+        return;
+      }
+      final MailMessage email;
+      try {
+        email = template.message(values);
+      } catch (Exception e) {
+        results.add(new MailResult().setCause(e));
+        return;
+      }
+      add(email, template, values);
+    }
+
+    private void add(MailMessage email, MailTemplate template, JsonObject values) {
+      if (failed) {
+        return;
+      }
+      String error = headerError(email);
+      if (error != null) {
+        results.add(new MailResult().setCause(new NoStackTraceThrowable(error)));
+        return;
+      }
+      queue.add(new Pending(email, template, values, results.size()));
+      results.add(null);
+      if (stream != null && !paused && queue.size() >= maxLanes * 2) {
+        paused = true;
+        stream.pause();
+      }
+      if (lanes < maxLanes) {
+        lanes++;
+        startLane(null);
+      }
+    }
+
+    void end() {
+      ended = true;
+      checkDone();
+    }
+
+    void fail(Throwable cause) {
+      if (!failed) {
+        failed = true;
+        queue.clear();
+        if (stream != null) {
+          stream.pause();
+        }
+        returnResult(Future.failedFuture(cause), resultHandler, context);
+      }
+    }
+
+    private void failMail(Pending pending, Throwable cause) {
+      results.set(pending.index, new MailResult().setCause(cause));
+    }
+
+    // continues the lane of a connection that has failed with a new connection
+    private void restartLane() {
+      if (queue.isEmpty()) {
+        lanes--;
+        checkDone();
+      } else {
+        startLane(null);
+      }
+    }
+
+    private void checkDone() {
+      if (ended && !failed && lanes == 0 && queue.isEmpty()) {
+        returnResult(Future.succeededFuture(results), resultHandler, context);
+      }
+    }
+
+    private void onContext(Runnable action) {
+      if (Vertx.currentContext() == context) {
+        action.run();
+      } else {
+        context.runOnContext(v -> action.run());
+      }
+    }
+
+    private void onConnectionContext(SMTPConnection conn, Runnable action) {
+      final Context connContext = conn.getContext();
+      if (connContext == null || Vertx.currentContext() == connContext) {
+        action.run();
+      } else {
+        connContext.runOnContext(v -> action.run());
+      }
+    }
+
+    private Pending poll() {
+      final Pending pending = failed ? null : queue.poll();
+      if (pending != null && paused && queue.size() < maxLanes) {
+        paused = false;
+        stream.resume();
+      }
+      return pending;
+    }
+
+    // the pending mail is sent first if it is not null
+    private void startLane(Pending pending) {
+      connectionPool.getConnection(hostname, result -> onContext(() -> {
+        if (result.succeeded()) {
+          if (pending != null) {
+            encodeAndSend(pending, result.result());
+          } else {
+            next(result.result());
+          }
+        } else {
+          laneFailed(pending, result.cause());
+        }
+      }));
+    }
+
+    // a lane that did not get a connection ends, the other lanes send its mails if there are any left
+    private void laneFailed(Pending pending, Throwable cause) {
+      lanes--;
+      if (pending != null) {
+        queue.addFirst(pending);
+      }
+      if (lanes == 0 && !queue.isEmpty()) {
+        fail(cause);
+      } else {
+        checkDone();
+      }
+    }
+
+    private void next(SMTPConnection conn) {
+      final Pending pending = poll();
+      if (pending == null) {
+        conn.returnToPool();
+        lanes--;
+        checkDone();
+      } else {
+        encodeAndSend(pending, conn);
+      }
+    }
+
+    private void encodeAndSend(Pending pending, SMTPConnection conn) {
+      final boolean[] connectionFailed = new boolean[1];
+      conn.setErrorHandler(th -> onContext(() -> connectionFailed[0] = true));
+      pending.encode(context).onComplete(mail -> onContext(() -> {
+        if (failed) {
+          conn.returnToPool();
+          lanes--;
+        } else if (connectionFailed[0]) {
+          // the connection failed while the mail was encoded, it is sent over a new one
+          conn.setBroken();
+          queue.addFirst(pending);
+          restartLane();
+        } else if (mail.succeeded()) {
+          send(pending, conn, false);
+        } else {
+          // nothing of the mail has been sent, the connection is used for the next one
+          failMail(pending, mail.cause());
+          next(conn);
+        }
+      }));
+    }
+
+    private boolean pipelineTransactions(SMTPConnection conn) {
+      return config.isTransactionPipelining() && config.isPipelining() && conn.getCapa().isCapaPipelining();
+    }
+
+    private SMTPSendMail send(Pending pending, SMTPConnection conn, boolean afterPrevious) {
+      final EncodedMail mail = pending.encoded.result();
+      final SMTPSendMail sendMail = new SMTPSendMail(conn, pending.email, config, mail.encodedPart, mail.messageId);
+      // the next mail of the lane is encoded while this one is sent
+      final Pending following = pipelineTransactions(conn) ? poll() : null;
+      if (following != null) {
+        following.encode(context);
+        // asked on the context of the connection, the successor is decided on ours
+        sendMail.setSuccessor(() -> {
+          final Promise<SMTPSendMail> successor = Promise.promise();
+          onContext(() -> {
+            if (failed || !following.encoded.succeeded() || connectionPool.isUsedUp(conn, 1)) {
+              successor.complete(null);
+            } else {
+              following.pipelined = true;
+              successor.complete(send(following, conn, true));
+            }
+          });
+          return successor.future();
+        });
+      }
+      final Handler<AsyncResult<MailResult>> sentResultHandler = result -> onContext(() -> {
+        if (result.succeeded()) {
+          results.set(pending.index, result.result());
+          if (following != null && following.pipelined) {
+            // the next mail is already on its way
+            return;
+          }
+          final Pending nextPending = following != null ? following : poll();
+          if (nextPending == null) {
+            next(conn);
+          } else if (connectionPool.isUsedUp(conn)) {
+            // the pool closes the connection, continue with another one
+            conn.returnToPool();
+            startLane(nextPending);
+          } else {
+            encodeAndSend(nextPending, conn);
+          }
+        } else if (conn.isResetPending()) {
+          // the pooled connection failed before the RSET succeeded, the server has probably dropped it.
+          // nothing of the mail has been accepted yet, so it is sent again over a new connection
+          log.debug("pooled connection is not usable, sending the mail over a new connection");
+          conn.setBroken();
+          if (following != null) {
+            queue.addFirst(following);
+          }
+          connectionPool.getFreshConnection(newConn -> onContext(() -> {
+            if (newConn.succeeded()) {
+              send(pending, newConn.result(), false);
+            } else {
+              laneFailed(pending, newConn.cause());
+            }
+          }));
+        } else if (sendMail.isPreviousFailed()) {
+          // the previous mail has been rejected before this one was attempted, it is sent over a new connection
+          // since the server may still be waiting for the data of the envelope sent along
+          if (following != null) {
+            queue.addFirst(following);
+          }
+          queue.addFirst(pending);
+          conn.setBroken();
+          restartLane();
+        } else {
+          failMail(pending, result.cause());
+          if (following != null && following.pipelined) {
+            // the next mail is already on its way and continues the lane
+            return;
+          }
+          if (following != null) {
+            queue.addFirst(following);
+          }
+          conn.setBroken();
+          restartLane();
+        }
+      });
+      conn.setErrorHandler(th -> sentResultHandler.handle(Future.failedFuture(th)));
+      if (afterPrevious) {
+        // waits for the envelope replies, which arrive on the context of the connection
+        sendMail.startPipelinedTransaction(sentResultHandler);
+      } else {
+        // the transaction runs on the context of the connection like its socket handlers, the connection may have
+        // been opened by another context sharing the pool
+        onConnectionContext(conn, () -> sendMail.startMailTransaction(sentResultHandler));
+      }
+      return sendMail;
+    }
+  }
+
+  /**
+   * a mail of a batch that has not been sent yet
+   */
+  private class Pending {
+    final MailMessage email;
+    // the template the mail is rendered from and the values of its placeholders, null for a complete message
+    final MailTemplate template;
+    final JsonObject values;
+    final int index;
+    Future<EncodedMail> encoded;
+    // the envelope has been sent together with the end of data of the previous mail
+    boolean pipelined;
+
+    Pending(MailMessage email, MailTemplate template, JsonObject values, int index) {
+      this.email = email;
+      this.template = template;
+      this.values = values;
+      this.index = index;
+    }
+
+    Future<EncodedMail> encode(Context context) {
+      if (encoded == null) {
+        encoded = encodeMail(this, context);
+      }
+      return encoded;
+    }
+  }
+
   private static class MailHolder implements Shareable {
     final SMTPConnectionPool pool;
+    // shared by the clients using the pool, null if it is disabled
+    final EncodedAttachmentCache attachmentCache;
     final Runnable closeRunner;
     int refCount = 1;
 
     MailHolder(Vertx vertx, MailConfig config, Runnable closeRunner) {
       this.closeRunner = closeRunner;
       this.pool= new SMTPConnectionPool(vertx, config);
+      this.attachmentCache = config.getAttachmentCacheSize() > 0
+        ? new EncodedAttachmentCache(config.getAttachmentCacheSize()) : null;
     }
 
     SMTPConnectionPool pool() {
       return pool;
     }
 
+    EncodedAttachmentCache attachmentCache() {
+      return attachmentCache;
+    }
+
     synchronized void incRefCount() {
       refCount++;
     }
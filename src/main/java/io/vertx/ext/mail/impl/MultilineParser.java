@@ -22,6 +22,8 @@ import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.parsetools.RecordParser;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.regex.Pattern;
 
 /**
@@ -30,6 +32,9 @@ import java.util.regex.Pattern;
  * Multi-lines responses for one command split with '\n'.
  * Responses(one line response and multi-lines responses) split with '\r\n'.
  *
+ * When several pipelined command groups are in flight, the responses of each group are handed to the output
+ * separately, in the order the groups have been registered with {@link #expectGroup(int)}.
+ *
  * @author <a href="http://oss.lehmann.cx/">Alexander Lehmann</a>
  * @author <a href="mailto:aoingl@gmail.com">Lin Gao</a>
  */
@@ -41,6 +46,8 @@ class MultilineParser implements Handler<Buffer> {
   private final RecordParser rp;
   private int expected = 1;
   private int actual = 0;
+  // the number of responses of the command groups in flight, the first one is the group being read
+  private final Deque<Integer> groups = new ArrayDeque<>();
 
   public MultilineParser(Handler<Buffer> output) {
     Handler<Buffer> mlp = new Handler<Buffer>() {
@@ -70,15 +77,15 @@ class MultilineParser implements Handler<Buffer> {
         result.appendBuffer(buffer);
         if (isFinalLine(buffer)) {
           actual ++;
-          if (actual < expected) {
+          final int groupSize = groups.isEmpty() ? expected : groups.peek();
+          if (actual < groupSize) {
             result.appendString("\r\n");
-          } else if (actual == expected) {
-            try {
-              output.handle(result);
-            } finally {
-              result = null;
-              actual = 0;
-            }
+          } else if (actual == groupSize) {
+            final Buffer groupResult = result;
+            result = null;
+            actual = 0;
+            groups.poll();
+            output.handle(groupResult);
           }
         } else {
           // append \n for all non-last line, there are more buffers to handle
@@ -109,4 +116,22 @@ class MultilineParser implements Handler<Buffer> {
     return this;
   }
 
+  /**
+   * register a pipelined command group, the group is read after the groups registered before
+   *
+   * @param responses the number of responses of the group
+   * @return a reference to this, so the API can be used fluently
+   */
+  MultilineParser expectGroup(int responses) {
+    groups.add(responses);
+    return this;
+  }
+
+  /**
+   * forget the groups in flight, e.g. when the connection is closed
+   */
+  void clearGroups() {
+    groups.clear();
+  }
+
 }
@@ -16,14 +16,21 @@
 
 package io.vertx.ext.mail.impl;
 
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.impl.NoStackTraceThrowable;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.net.NetClient;
 import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.impl.NetSocketInternal;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.mail.MailConfig;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -37,6 +44,9 @@ class SMTPConnection {
 
   private static final Logger log = LoggerFactory.getLogger(SMTPConnection.class);
 
+  // the mail data is written when this size is reached or with the next command expecting a reply
+  static final int DATA_FLUSH_SIZE = 16 * 1024;
+
   private NetSocket ns;
   private boolean socketClosed;
   private boolean socketShutDown;
@@ -50,6 +60,17 @@ class SMTPConnection {
   private final ConnectionLifeCycleListener listener;
   private Context context;
   private final MultilineParser nsHandler;
+  // System.nanoTime() when the connection was opened and when it last became idle
+  private long created;
+  private long idleSince;
+  private int mailCount;
+  // the connection has been taken from the pool and has to be checked with RSET before the next mail
+  private boolean resetPending;
+  // the handlers of the pipelined command groups in flight, in the order the groups were written
+  private final Deque<Handler<String>> groupReplyHandlers = new ArrayDeque<>();
+  // small mail data fragments that have not been written to the socket yet, a pooled buffer of the channel
+  private ByteBuf pendingData;
+  private final DataWriteStream dataStream = new DataWriteStream();
 
   SMTPConnection(NetClient client, ConnectionLifeCycleListener listener) {
     broken = true;
@@ -60,7 +81,10 @@ class SMTPConnection {
     this.client = client;
     this.listener = listener;
     this.nsHandler = new MultilineParser(buffer -> {
-      if (commandReplyHandler == null) {
+      final Handler<String> groupReplyHandler = groupReplyHandlers.poll();
+      if (groupReplyHandler != null) {
+        groupReplyHandler.handle(buffer.toString());
+      } else if (commandReplyHandler == null) {
         log.debug("dropping reply arriving after we stopped processing the buffer.");
       } else {
         // make sure we only call the handler once
@@ -91,6 +115,9 @@ class SMTPConnection {
   void shutdown() {
     broken = true;
     commandReplyHandler = null;
+    groupReplyHandlers.clear();
+    nsHandler.clearGroups();
+    releasePendingData();
     socketShutDown = true;
     if (ns != null) {
       ns.close();
@@ -110,6 +137,54 @@ class SMTPConnection {
     });
   }
 
+  /**
+   * write several pipelined command groups with one write (RFC 2920), the replies of each group are handed to the
+   * handler of the group in the order of the groups
+   *
+   * @param groups   the commands of the groups
+   * @param handlers the reply handlers of the groups
+   */
+  void writeCommandGroups(List<List<String>> groups, List<Handler<String>> handlers) {
+    if (socketClosed) {
+      log.debug("connection was closed by server");
+      handleError("connection was closed by server");
+    } else if (ns != null) {
+      StringBuilder cmds = new StringBuilder();
+      for (int i = 0; i < groups.size(); i++) {
+        nsHandler.expectGroup(groups.get(i).size());
+        groupReplyHandlers.add(handlers.get(i));
+        for (String command : groups.get(i)) {
+          cmds.append(command).append("\r\n");
+        }
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("command: " + cmds);
+      }
+      writeWithPendingData(cmds.toString());
+    } else {
+      log.debug("not sending command groups since the netsocket is null");
+    }
+  }
+
+  /**
+   * write a command followed by data, e.g. BDAT, the reply is handed to the handler after the replies of the
+   * command groups written before
+   */
+  void writeChunk(String command, Buffer data, Handler<String> replyHandler) {
+    if (socketClosed) {
+      log.debug("connection was closed by server");
+      handleError("connection was closed by server");
+    } else if (ns != null) {
+      log.debug("command: " + command);
+      nsHandler.expectGroup(1);
+      groupReplyHandlers.add(replyHandler);
+      writeWithPendingData(command + "\r\n");
+      ns.write(data);
+    } else {
+      log.debug("not sending command " + command + " since the netsocket is null");
+    }
+  }
+
   /*
    * write command without masking anything
    */
@@ -145,7 +220,7 @@ class SMTPConnection {
             log.debug("command: " + logStr.substring(0, 1000) + "...");
           }
         }
-        ns.write(str + "\r\n");
+        writeWithPendingData(str + "\r\n");
       } else {
         log.debug("not sending command " + str + " since the netsocket is null");
       }
@@ -157,22 +232,111 @@ class SMTPConnection {
     if (mayLog) {
       log.debug(str);
     }
-    ns.write(str + "\r\n");
+    writeWithPendingData(str + "\r\n");
   }
 
-  // write single line not expecting a reply, using drain handler
-  void writeLineWithDrainPromise(String str, boolean mayLog, Promise<Void> promise) {
-    if (mayLog) {
-      log.debug(str);
+  /**
+   * get the stream for writing the mail data, small buffers are collected and written to the socket when
+   * {@link #DATA_FLUSH_SIZE} bytes have been collected or together with the next command or line written to the
+   * connection, e.g. the end dot. Buffers of at least {@link #DATA_FLUSH_SIZE} bytes are written as they are.
+   *
+   * @return the write stream for the mail data
+   */
+  WriteStream<Buffer> dataStream() {
+    return dataStream;
+  }
+
+  // writes the data collected so far followed by str, so that both are written with one write
+  private void writeWithPendingData(String str) {
+    if (pendingData == null) {
+      ns.write(str);
+      return;
     }
-    if (ns.writeQueueFull()) {
-      ns.drainHandler(v -> {
-        // avoid getting confused by being called twice
-        ns.drainHandler(null);
-        ns.write(str + "\r\n").onComplete(promise);
-      });
-    } else {
-      ns.write(str + "\r\n").onComplete(promise);
+    pendingData.writeCharSequence(str, StandardCharsets.UTF_8);
+    flushPendingData();
+  }
+
+  // the channel releases the buffer when it has been written
+  private Future<Void> flushPendingData() {
+    final ByteBuf data = pendingData;
+    pendingData = null;
+    return ((NetSocketInternal) ns).writeMessage(data);
+  }
+
+  private void releasePendingData() {
+    if (pendingData != null) {
+      pendingData.release();
+      pendingData = null;
+    }
+  }
+
+  /**
+   * collects the small mail data buffers in a pooled buffer and writes it to the socket when it is full, large
+   * buffers are written without copying them
+   */
+  private class DataWriteStream implements WriteStream<Buffer> {
+
+    @Override
+    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+      if (ns == null || socketClosed) {
+        return Future.failedFuture("connection is closed");
+      }
+      if (data.length() >= DATA_FLUSH_SIZE) {
+        if (pendingData != null) {
+          flushPendingData();
+        }
+        return ns.write(data);
+      }
+      if (pendingData != null && pendingData.writableBytes() < data.length()) {
+        flushPendingData();
+      }
+      if (pendingData == null) {
+        pendingData = ((NetSocketInternal) ns).channelHandlerContext().alloc().buffer(DATA_FLUSH_SIZE);
+      }
+      pendingData.writeBytes(data.getByteBuf());
+      if (pendingData.isWritable()) {
+        return Future.succeededFuture();
+      }
+      return flushPendingData();
+    }
+
+    @Override
+    public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+      Future<Void> future = write(data);
+      if (handler != null) {
+        future.onComplete(handler);
+      }
+    }
+
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+      // the connection is not ended with the mail data
+      if (handler != null) {
+        handler.handle(Future.succeededFuture());
+      }
+    }
+
+    @Override
+    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      return ns != null && ns.writeQueueFull();
+    }
+
+    @Override
+    public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+      if (ns != null) {
+        ns.drainHandler(handler);
+      }
+      return this;
     }
   }
 
@@ -192,6 +356,7 @@ class SMTPConnection {
     client.connect(config.getPort(), config.getHostname(), asyncResult -> {
       if (asyncResult.succeeded()) {
         context = Vertx.currentContext();
+        created = System.nanoTime();
         ns = asyncResult.result();
         socketClosed = false;
         ns.exceptionHandler(e -> {
@@ -209,6 +374,7 @@ class SMTPConnection {
           log.debug("socket has been closed");
           listener.connectionClosed(this);
           socketClosed = true;
+          releasePendingData();
           // avoid exception if we regularly shut down the socket on our side
           if (!socketShutDown && !idle && !broken) {
             setBroken();
@@ -309,6 +475,46 @@ class SMTPConnection {
    */
   void setIdle() {
     idle = true;
+    idleSince = System.nanoTime();
+  }
+
+  /**
+   * @return the System.nanoTime() when the connection was opened
+   */
+  long getCreated() {
+    return created;
+  }
+
+  /**
+   * @return the System.nanoTime() when the connection became idle the last time
+   */
+  long getIdleSince() {
+    return idleSince;
+  }
+
+  /**
+   * count a mail that has been sent successfully over this connection
+   */
+  void countMail() {
+    mailCount++;
+  }
+
+  /**
+   * @return the number of mails sent over this connection
+   */
+  int getMailCount() {
+    return mailCount;
+  }
+
+  /**
+   * @return true if the connection has to be checked with RSET before it is used for the next mail
+   */
+  boolean isResetPending() {
+    return resetPending;
+  }
+
+  void setResetPending(boolean resetPending) {
+    this.resetPending = resetPending;
   }
 
   /**
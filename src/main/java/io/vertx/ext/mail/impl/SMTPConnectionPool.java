@@ -16,48 +16,107 @@
 
 package io.vertx.ext.mail.impl;
 
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.EventExecutor;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.net.NetClient;
 import io.vertx.ext.auth.PRNG;
+import io.vertx.ext.mail.ConnectionPoolBusyException;
+import io.vertx.ext.mail.ConnectionValidation;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.StartTLSOptions;
 import io.vertx.ext.mail.impl.sasl.AuthOperationFactory;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.Queue;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-class SMTPConnectionPool implements ConnectionLifeCycleListener {
+class SMTPConnectionPool {
 
   private static final Logger log = LoggerFactory.getLogger(SMTPConnectionPool.class);
 
+  private final Vertx vertx;
   private final int maxSockets;
   private final boolean keepAlive;
-  private final Queue<Waiter> waiters = new ArrayDeque<>();
-  private final Set<SMTPConnection> allConnections = new HashSet<>();
+  private final boolean perContext;
+  // limits of a pooled connection, the times are in nanoseconds, 0 means no limit
+  private final long idleTimeout;
+  private final long maxLifetime;
+  private final int maxMails;
+  private final int cleanerPeriod;
+  private final ConnectionValidation validation;
+  private final long validationThreshold;
+  // the number of idle connections each sub pool keeps open
+  private final int minIdleShare;
+  private final int maxWaitQueueSize;
+  private final int acquireTimeout;
+  // the number of connections a sub pool may open before it tries to take over idle connections of other sub pools
+  private final int contextShare;
+  // the single sub pool used if per context pools are disabled
+  private final SubPool sharedPool;
+  private final Map<EventLoop, SubPool> contextPools = new ConcurrentHashMap<>();
+  private final AtomicInteger connCount = new AtomicInteger();
   private final NetClient netClient;
   private final MailConfig config;
   private final PRNG prng;
   private final AuthOperationFactory authOperationFactory;
-  private String hostname;
-  private boolean closed = false;
-  private int connCount;
+  private volatile String hostname;
+  private volatile boolean closed = false;
+  private final AtomicBoolean closeFinished = new AtomicBoolean();
 
-  private Handler<Void> closeFinishedHandler;
+  private volatile Handler<Void> closeFinishedHandler;
 
   SMTPConnectionPool(Vertx vertx, MailConfig config) {
+    this.vertx = vertx;
     this.config = config;
     maxSockets = config.getMaxPoolSize();
     keepAlive = config.isKeepAlive();
+    perContext = config.isPerContextPool();
+    idleTimeout = config.getPoolIdleTimeoutUnit().toNanos(config.getPoolIdleTimeout());
+    maxLifetime = config.getMaxLifetimeUnit().toNanos(config.getMaxLifetime());
+    maxMails = config.getMaxMailsPerConnection();
+    cleanerPeriod = config.getPoolCleanerPeriod();
+    validation = config.getConnectionValidation();
+    validationThreshold = TimeUnit.MILLISECONDS.toNanos(config.getValidationIdleThreshold());
+    maxWaitQueueSize = config.getMaxWaitQueueSize();
+    acquireTimeout = config.getConnectionAcquireTimeout();
     this.prng = new PRNG(vertx);
     this.authOperationFactory = new AuthOperationFactory(prng);
 
+    // the pool cannot keep more idle connections than it may open
+    final int minIdle = Math.min(config.getMinIdle(), maxSockets);
+    if (perContext) {
+      int eventLoops = 0;
+      for (EventExecutor ignored : vertx.nettyEventLoopGroup()) {
+        eventLoops++;
+      }
+      contextShare = Math.max(1, (maxSockets + eventLoops - 1) / eventLoops);
+      minIdleShare = (minIdle + eventLoops - 1) / eventLoops;
+      sharedPool = null;
+    } else {
+      contextShare = maxSockets;
+      minIdleShare = minIdle;
+      sharedPool = new SubPool(null);
+    }
+
     // If the hostname verification isn't set yet, but we are configured to use SSL, update that now
     String verification = config.getHostnameVerificationAlgorithm();
     if ((verification == null || verification.isEmpty()) && !config.isTrustAll() &&
@@ -79,7 +138,35 @@ class SMTPConnectionPool implements ConnectionLifeCycleListener {
     if (closed) {
       resultHandler.handle(Future.failedFuture("connection pool is closed"));
     } else {
-      getConnection0(resultHandler);
+      SubPool pool = subPool();
+      pool.execute(() -> pool.getConnection0(resultHandler));
+    }
+  }
+
+  /**
+   * open connections in parallel until the pool of the current context has the requested number of connections,
+   * the new connections are put into the pool as idle connections
+   */
+  void warmUp(String hostname, int connections, Handler<AsyncResult<Void>> resultHandler) {
+    this.hostname = hostname;
+    if (closed) {
+      resultHandler.handle(Future.failedFuture("connection pool is closed"));
+    } else {
+      SubPool pool = subPool();
+      pool.execute(() -> pool.warmUp(connections, resultHandler));
+    }
+  }
+
+  /**
+   * get a new connection in place of a pooled connection that turned out to be unusable, the caller has to set
+   * the unusable connection to broken
+   */
+  void getFreshConnection(Handler<AsyncResult<SMTPConnection>> resultHandler) {
+    if (closed) {
+      resultHandler.handle(Future.failedFuture("connection pool is closed"));
+    } else {
+      SubPool pool = subPool();
+      pool.execute(() -> pool.replaceConnection(resultHandler));
     }
   }
 
@@ -87,130 +174,503 @@ class SMTPConnectionPool implements ConnectionLifeCycleListener {
     close(null);
   }
 
+  /**
+   * @return true if the connection has reached its max lifetime or max mails and may not be used for another mail
+   */
+  boolean isUsedUp(SMTPConnection conn) {
+    return isUsedUp(conn, 0);
+  }
+
+  /**
+   * @param inFlight the number of mails on the connection that have not been counted yet
+   * @return true if the connection may not be used for another mail after the mails in flight
+   */
+  boolean isUsedUp(SMTPConnection conn, int inFlight) {
+    return maxMails > 0 && conn.getMailCount() + inFlight >= maxMails
+      || maxLifetime > 0 && System.nanoTime() - conn.getCreated() >= maxLifetime;
+  }
+
   synchronized void close(Handler<Void> finishedHandler) {
     if (closed) {
       throw new IllegalStateException("pool is already closed");
     } else {
-      closed = true;
       closeFinishedHandler = finishedHandler;
-      closeAllConnections();
+      closed = true;
+      if (connCount.get() > 0) {
+        for (SubPool pool : subPools()) {
+          pool.execute(pool::closeAllConnections);
+        }
+      } else {
+        closeFinished();
+      }
       this.prng.close();
     }
   }
 
-  synchronized int connCount() {
-    return connCount;
+  int connCount() {
+    return connCount.get();
+  }
+
+  NetClient getNetClient() {
+    return this.netClient;
+  }
+
+  // Private methods
+
+  private SubPool subPool() {
+    if (!perContext) {
+      return sharedPool;
+    }
+    ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+    return contextPools.computeIfAbsent(context.nettyEventLoop(), loop -> new SubPool(context));
+  }
+
+  private Iterable<SubPool> subPools() {
+    if (perContext) {
+      return contextPools.values();
+    }
+    return Collections.singletonList(sharedPool);
   }
 
-  // Lifecycle methods
+  // take one connection of the maxPoolSize budget, returns false if the pool is exhausted
+  private boolean reserve() {
+    while (true) {
+      int count = connCount.get();
+      if (count >= maxSockets) {
+        return false;
+      }
+      if (connCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
 
-  // Called when the send operation has finished
-  public synchronized void dataEnded(SMTPConnection conn) {
-    checkReuseConnection(conn);
+  private void release() {
+    if (connCount.decrementAndGet() == 0 && closed) {
+      closeFinished();
+    }
   }
 
-  // Called if the connection is actually closed OR the connection attempt
-  // failed - in the latter case conn will be null
-  public synchronized void connectionClosed(SMTPConnection conn) {
-    log.debug("connection closed, removing from pool");
-    connCount--;
-    if (conn != null) {
-      allConnections.remove(conn);
-    }
-    Waiter waiter = waiters.poll();
-    if (waiter != null) {
-      // There's a waiter - so it can have a new connection
-      log.debug("creating new connection for waiter");
-      createNewConnection(waiter.handler);
-    }
-    if (closed && connCount == 0) {
+  private void closeFinished() {
+    if (closeFinished.compareAndSet(false, true)) {
       log.debug("all connections closed, closing NetClient");
       netClient.close();
-      if (closeFinishedHandler != null) {
-        closeFinishedHandler.handle(null);
+      Handler<Void> handler = closeFinishedHandler;
+      if (handler != null) {
+        handler.handle(null);
       }
     }
   }
 
-  NetClient getNetClient() {
-    return this.netClient;
+  // wake up the other sub pools that have waiters after a connection became available
+  private void notifyWaiters(SubPool source) {
+    if (perContext) {
+      for (SubPool pool : contextPools.values()) {
+        if (pool != source && pool.waiterCount > 0) {
+          pool.context.runOnContext(v -> pool.serveWaiters());
+        }
+      }
+    }
   }
 
-  // Private methods
+  private boolean idleElsewhere(SubPool pool) {
+    for (SubPool other : contextPools.values()) {
+      if (other != pool && other.idleCount > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-  private synchronized void getConnection0(Handler<AsyncResult<SMTPConnection>> handler) {
-    SMTPConnection idleConn = null;
-    for (SMTPConnection conn : allConnections) {
-      if (!conn.isBroken() && conn.isIdle()) {
-        idleConn = conn;
-        break;
+  /**
+   * The connections opened by one context (or all connections if per context pools are disabled).
+   * <p>
+   * The state of a sub pool is only touched inside {@link #execute}, which either runs on the owning context or, for
+   * the shared pool, holds the monitor of the sub pool.
+   */
+  private final class SubPool implements ConnectionLifeCycleListener {
+
+    private final Context context;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Set<SMTPConnection> allConnections = new HashSet<>();
+    // idle connections, the most recently used one first
+    private final Deque<SMTPConnection> idleConnections = new ArrayDeque<>();
+    // connections opened by this sub pool
+    private int ownCount;
+    // written by the owning context only, read by the other sub pools to find idle connections and waiters
+    private volatile int idleCount;
+    private volatile int waiterCount;
+    // connections that are being opened to be put into the idle deque
+    private int opening;
+
+    private SubPool(Context context) {
+      this.context = context;
+      if (idleTimeout > 0 || maxLifetime > 0 || minIdleShare > 0) {
+        if (context == null) {
+          startCleaner();
+        } else {
+          context.runOnContext(v -> startCleaner());
+        }
       }
     }
-    if (idleConn == null && connCount >= maxSockets) {
-      // Wait in queue
-      log.debug("waiting for a free socket");
-      waiters.add(new Waiter(handler));
-    } else {
-      if (idleConn == null) {
+
+    // the timer runs on the context of the sub pool
+    private void startCleaner() {
+      vertx.setPeriodic(cleanerPeriod, id -> {
+        if (closed) {
+          vertx.cancelTimer(id);
+        } else {
+          execute(() -> {
+            closeExpiredConnections();
+            fillIdle();
+          });
+        }
+      });
+    }
+
+    private void warmUp(int connections, Handler<AsyncResult<Void>> handler) {
+      // the connections are opened concurrently, the result waits for all of them
+      Future<Void> opened = Future.succeededFuture();
+      int count = 0;
+      while (ownCount < connections && reserve()) {
+        Future<Void> open = openIdleConnection();
+        opened = opened.compose(v -> open);
+        count++;
+      }
+      log.debug("warming up the pool with " + count + " connections");
+      opened.onComplete(handler);
+    }
+
+    // open connections in the background until minIdle connections are idle, a failed attempt is retried
+    // with the next run of the cleaner
+    private void fillIdle() {
+      if (keepAlive && hostname != null) {
+        while (idleConnections.size() + opening < minIdleShare && reserve()) {
+          log.debug("opening a connection to keep the min idle connections");
+          openIdleConnection();
+        }
+      }
+    }
+
+    private Future<Void> openIdleConnection() {
+      Promise<SMTPConnection> promise = Promise.promise();
+      ownCount++;
+      opening++;
+      createNewConnection(promise);
+      return promise.future().map(conn -> {
+        // the connection is put into the idle deque or handed to a waiter
+        execute(() -> opening--);
+        conn.returnToPool();
+        return (Void) null;
+      }).onFailure(err -> execute(() -> opening--));
+    }
+
+    private void execute(Runnable action) {
+      if (context == null) {
+        synchronized (this) {
+          action.run();
+        }
+      } else if (Vertx.currentContext() == context) {
+        action.run();
+      } else {
+        context.runOnContext(v -> action.run());
+      }
+    }
+
+    // Lifecycle methods
+
+    // Called when the send operation has finished
+    @Override
+    public void dataEnded(SMTPConnection conn) {
+      execute(() -> checkReuseConnection(conn));
+    }
+
+    // Called if the connection is actually closed OR the connection attempt
+    // failed - in the latter case conn will be null
+    @Override
+    public void connectionClosed(SMTPConnection conn) {
+      execute(() -> {
+        log.debug("connection closed, removing from pool");
+        ownCount--;
+        if (conn != null && allConnections.remove(conn) && conn.isIdle()) {
+          idleConnections.remove(conn);
+          idleCount = idleConnections.size();
+        }
+        Waiter waiter = pollWaiter();
+        if (waiter != null) {
+          // There's a waiter - so it can have a new connection
+          log.debug("creating new connection for waiter");
+          ownCount++;
+          createNewConnection(waiter.handler);
+        } else {
+          release();
+          notifyWaiters(this);
+        }
+      });
+    }
+
+    private void getConnection0(Handler<AsyncResult<SMTPConnection>> handler) {
+      if (closed) {
+        handler.handle(Future.failedFuture("connection pool is closed"));
+        return;
+      }
+      SMTPConnection idleConn = pollIdle();
+      if (idleConn != null) {
+        reuseConnection(idleConn, handler);
+      } else if (ownCount < contextShare && reserve()) {
         // Create a new connection
         log.debug("create a new connection");
+        ownCount++;
         createNewConnection(handler);
+      } else if (perContext) {
+        // the local pool is empty, try to take over an idle connection from another context before waiting
+        List<SubPool> victims = new ArrayList<>();
+        for (SubPool pool : contextPools.values()) {
+          if (pool != this && pool.idleCount > 0) {
+            victims.add(pool);
+          }
+        }
+        stealConnection(victims.iterator(), conn -> {
+          if (conn != null) {
+            reuseConnection(conn, handler);
+          } else if (reserve()) {
+            log.debug("create a new connection");
+            ownCount++;
+            createNewConnection(handler);
+          } else {
+            log.debug("waiting for a free socket");
+            addWaiter(handler);
+            // a connection may have been freed while we were looking for one, check again
+            if (idleElsewhere(this) || connCount.get() < maxSockets) {
+              context.runOnContext(v -> serveWaiters());
+            }
+          }
+        });
       } else {
-        if (idleConn.isClosed()) {
-          log.warn("idle connection is closed already, this may cause a problem");
+        // Wait in queue
+        log.debug("waiting for a free socket");
+        addWaiter(handler);
+      }
+    }
+
+    // take the hottest idle connection
+    private SMTPConnection pollIdle() {
+      return pollIdle(true);
+    }
+
+    // take the coldest idle connection, other contexts take these so that the hot ones stay on their own context
+    private SMTPConnection pollColdIdle() {
+      return pollIdle(false);
+    }
+
+    private SMTPConnection pollIdle(boolean hot) {
+      final long now = System.nanoTime();
+      SMTPConnection conn;
+      do {
+        conn = hot ? idleConnections.pollFirst() : idleConnections.pollLast();
+        if (conn != null && isExpired(conn, now)) {
+          // the cleaner has not caught this one yet
+          log.debug("idle connection has expired, closing");
+          conn.close();
+        } else {
+          break;
         }
-        // if we have found a connection, run a RSET command, this checks if the connection
-        // is really usable. If this fails, we create a new connection. we may run over the connection limit
-        // since the close operation is not finished before we open the new connection, however it will be closed
-        // shortly after
-        log.debug("found idle connection, checking");
-        final SMTPConnection conn = idleConn;
+      } while (true);
+      idleCount = idleConnections.size();
+      if (conn != null) {
         conn.useConnection();
-        conn.getContext().runOnContext(v -> new SMTPReset(conn, result -> {
-          if (result.succeeded()) {
-            handler.handle(Future.succeededFuture(conn));
-          } else {
-            conn.setBroken();
-            log.debug("using idle connection failed, create a new connection");
-            createNewConnection(handler);
+      }
+      return conn;
+    }
+
+    private boolean isExpired(SMTPConnection conn, long now) {
+      return idleTimeout > 0 && now - conn.getIdleSince() >= idleTimeout
+        || maxLifetime > 0 && now - conn.getCreated() >= maxLifetime;
+    }
+
+    private void closeExpiredConnections() {
+      final long now = System.nanoTime();
+      // the coldest connections are at the tail
+      Iterator<SMTPConnection> it = idleConnections.descendingIterator();
+      while (it.hasNext()) {
+        SMTPConnection conn = it.next();
+        if (isExpired(conn, now)) {
+          log.debug("idle connection has expired, closing");
+          it.remove();
+          conn.close();
+        }
+      }
+      idleCount = idleConnections.size();
+    }
+
+    // ask the sub pools in turn for an idle connection, the handler is called on this sub pool with null if none had one
+    private void stealConnection(Iterator<SubPool> victims, Handler<SMTPConnection> handler) {
+      if (victims.hasNext()) {
+        SubPool victim = victims.next();
+        victim.execute(() -> {
+          SMTPConnection conn = victim.pollColdIdle();
+          execute(() -> {
+            if (conn != null) {
+              log.debug("took over an idle connection of another context");
+              handler.handle(conn);
+            } else {
+              stealConnection(victims, handler);
+            }
+          });
+        });
+      } else {
+        handler.handle(null);
+      }
+    }
+
+    // runs on the context of the sub pool after a connection was returned or closed on another sub pool
+    private void serveWaiters() {
+      while (!waiters.isEmpty() && reserve()) {
+        log.debug("creating new connection for waiter");
+        ownCount++;
+        createNewConnection(pollWaiter().handler);
+      }
+      if (!waiters.isEmpty() && idleElsewhere(this)) {
+        List<SubPool> victims = new ArrayList<>(contextPools.values());
+        victims.remove(this);
+        stealConnection(victims.iterator(), conn -> {
+          if (conn != null) {
+            Waiter waiter = pollWaiter();
+            if (waiter != null) {
+              reuseConnection(conn, waiter.handler);
+            } else {
+              // nobody is waiting anymore, give the connection back
+              conn.returnToPool();
+            }
           }
-        }).start());
+        });
       }
     }
-  }
 
-  private synchronized void checkReuseConnection(SMTPConnection conn) {
-    if (conn.isBroken()) {
-      log.debug("connection is broken, closing");
-      conn.close();
-    } else {
-      // if the pool is disabled, just close the connection
-      if (!keepAlive || closed) {
-        log.debug("connection pool is disabled or pool is already closed, immediately doing QUIT");
+    private void addWaiter(Handler<AsyncResult<SMTPConnection>> handler) {
+      if (maxWaitQueueSize >= 0 && waiters.size() >= maxWaitQueueSize) {
+        log.debug("wait queue is full");
+        handler.handle(Future.failedFuture(new ConnectionPoolBusyException("connection pool wait queue is full")));
+        return;
+      }
+      Waiter waiter = new Waiter(handler);
+      if (acquireTimeout > 0) {
+        waiter.timerId = vertx.setTimer(acquireTimeout, id -> execute(() -> {
+          if (waiters.remove(waiter)) {
+            waiterCount = waiters.size();
+            log.debug("timed out waiting for a connection");
+            handler.handle(Future.failedFuture(new ConnectionPoolBusyException("timed out waiting for a connection")));
+          }
+        }));
+      }
+      waiters.add(waiter);
+      waiterCount = waiters.size();
+    }
+
+    private Waiter pollWaiter() {
+      Waiter waiter = waiters.poll();
+      waiterCount = waiters.size();
+      if (waiter != null && waiter.timerId >= 0) {
+        vertx.cancelTimer(waiter.timerId);
+      }
+      return waiter;
+    }
+
+    private void reuseConnection(SMTPConnection conn, Handler<AsyncResult<SMTPConnection>> handler) {
+      if (conn.isClosed()) {
+        log.warn("idle connection is closed already, this may cause a problem");
+      }
+      if (!needsValidation(conn)) {
+        log.debug("found idle connection, using it without checking");
+        handOver(conn, handler);
+        return;
+      }
+      if (config.isPipelining() && conn.getCapa().isCapaPipelining()) {
+        // the RSET is sent in the same command group as the mail envelope, the sender opens a new connection
+        // with getFreshConnection if the RSET fails
+        log.debug("found idle connection, checking it with the next envelope");
+        conn.setResetPending(true);
+        handOver(conn, handler);
+        return;
+      }
+      // if we have found a connection, run a RSET command, this checks if the connection
+      // is really usable. If this fails, we create a new connection. we may run over the connection limit
+      // since the close operation is not finished before we open the new connection, however it will be closed
+      // shortly after
+      log.debug("found idle connection, checking");
+      conn.getContext().runOnContext(v -> new SMTPReset(conn, result -> {
+        if (result.succeeded()) {
+          handler.handle(Future.succeededFuture(conn));
+        } else {
+          conn.setBroken();
+          log.debug("using idle connection failed, create a new connection");
+          execute(() -> replaceConnection(handler));
+        }
+      }).start());
+    }
+
+    private void handOver(SMTPConnection conn, Handler<AsyncResult<SMTPConnection>> handler) {
+      if (context != null && Vertx.currentContext() == conn.getContext()) {
+        handler.handle(Future.succeededFuture(conn));
+      } else {
+        conn.getContext().runOnContext(v -> handler.handle(Future.succeededFuture(conn)));
+      }
+    }
+
+    // the slot of the unusable connection is given back when it has been closed
+    private void replaceConnection(Handler<AsyncResult<SMTPConnection>> handler) {
+      connCount.incrementAndGet();
+      ownCount++;
+      createNewConnection(handler);
+    }
+
+    private boolean needsValidation(SMTPConnection conn) {
+      switch (validation) {
+        case NEVER:
+          return false;
+        case IDLE:
+          return System.nanoTime() - conn.getIdleSince() >= validationThreshold;
+        default:
+          return true;
+      }
+    }
+
+    private void checkReuseConnection(SMTPConnection conn) {
+      if (conn.isBroken()) {
+        log.debug("connection is broken, closing");
         conn.close();
       } else {
-        log.debug("checking for waiting operations");
-        Waiter waiter = waiters.poll();
-        if (waiter != null) {
-          log.debug("running one waiting operation");
-          conn.useConnection();
-          waiter.handler.handle(Future.succeededFuture(conn));
+        // if the pool is disabled, just close the connection
+        if (!keepAlive || closed) {
+          log.debug("connection pool is disabled or pool is already closed, immediately doing QUIT");
+          conn.close();
+        } else if (isUsedUp(conn)) {
+          // a waiter gets a new connection when this one is closed
+          log.debug("connection has reached its max lifetime or max mails, doing QUIT");
+          conn.close();
         } else {
-          log.debug("keeping connection idle");
-          conn.setIdle();
+          log.debug("checking for waiting operations");
+          Waiter waiter = pollWaiter();
+          if (waiter != null) {
+            log.debug("running one waiting operation");
+            conn.useConnection();
+            waiter.handler.handle(Future.succeededFuture(conn));
+          } else {
+            log.debug("keeping connection idle");
+            conn.setIdle();
+            idleConnections.addFirst(conn);
+            idleCount = idleConnections.size();
+            notifyWaiters(this);
+          }
         }
       }
     }
-  }
 
-  private void closeAllConnections() {
-    Set<SMTPConnection> copy;
-    if (connCount > 0) {
-      synchronized (this) {
-        copy = new HashSet<>(allConnections);
-        allConnections.clear();
-      }
-      // Close outside sync block to avoid deadlock
+    private void closeAllConnections() {
+      Set<SMTPConnection> copy = new HashSet<>(allConnections);
+      allConnections.clear();
+      idleConnections.clear();
+      idleCount = 0;
       for (SMTPConnection conn : copy) {
         if (conn.isIdle() || conn.isBroken()) {
           conn.close();
@@ -219,38 +679,33 @@ class SMTPConnectionPool implements ConnectionLifeCycleListener {
           conn.setDoShutdown();
         }
       }
-    } else {
-      this.netClient.close();
-      if (closeFinishedHandler != null) {
-        closeFinishedHandler.handle(null);
-      }
     }
-  }
 
-  private void createNewConnection(Handler<AsyncResult<SMTPConnection>> handler) {
-    connCount++;
-    log.debug("Connection count is " + connCount);
-    createConnection(result -> {
-      if (result.succeeded()) {
-        allConnections.add(result.result());
-      }
-      handler.handle(result);
-    });
-  }
+    private void createNewConnection(Handler<AsyncResult<SMTPConnection>> handler) {
+      log.debug("Connection count is " + connCount.get());
+      createConnection(result -> {
+        if (result.succeeded()) {
+          execute(() -> allConnections.add(result.result()));
+        }
+        handler.handle(result);
+      });
+    }
 
-  private void createConnection(Handler<AsyncResult<SMTPConnection>> handler) {
-    SMTPConnection conn = new SMTPConnection(netClient, this);
-    new SMTPStarter(conn, config, hostname, this.authOperationFactory, result -> {
-      if (result.succeeded()) {
-        handler.handle(Future.succeededFuture(conn));
-      } else {
-        handler.handle(Future.failedFuture(result.cause()));
-      }
-    }).start();
+    private void createConnection(Handler<AsyncResult<SMTPConnection>> handler) {
+      SMTPConnection conn = new SMTPConnection(netClient, this);
+      new SMTPStarter(conn, config, hostname, authOperationFactory, result -> {
+        if (result.succeeded()) {
+          handler.handle(Future.succeededFuture(conn));
+        } else {
+          handler.handle(Future.failedFuture(result.cause()));
+        }
+      }).start();
+    }
   }
 
   private static class Waiter {
     private final Handler<AsyncResult<SMTPConnection>> handler;
+    private long timerId = -1;
 
     private Waiter(Handler<AsyncResult<SMTPConnection>> handler) {
       this.handler = handler;
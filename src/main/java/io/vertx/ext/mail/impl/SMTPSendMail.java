@@ -21,6 +21,7 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.MailMessage;
 import io.vertx.ext.mail.MailResult;
@@ -28,8 +29,11 @@ import io.vertx.ext.mail.mailencoder.EmailAddress;
 import io.vertx.ext.mail.mailencoder.EncodedPart;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -44,6 +48,15 @@ class SMTPSendMail {
   private final MailResult mailResult;
   private final EncodedPart encodedPart;
   private final AtomicLong written = new AtomicLong();
+  // the mail data is sent with BDAT instead of DATA (RFC 3030)
+  private final boolean chunking;
+  private BdatWriteStream bdatStream;
+  // supplies the next transaction on the connection, its envelope is sent together with our end of data
+  private Supplier<Future<SMTPSendMail>> successor;
+  // the envelope result if our envelope is sent together with the end of data of the previous transaction
+  private Promise<Boolean> pipelinedEnvelope;
+  // the end of data of the previous transaction has been rejected, nothing of this mail has been accepted
+  private volatile boolean previousFailed;
 
   SMTPSendMail(SMTPConnection connection, MailMessage email, MailConfig config,
                EncodedPart encodedPart, String messageId) {
@@ -53,6 +66,7 @@ class SMTPSendMail {
     this.mailResult = new MailResult();
     this.encodedPart = encodedPart;
     this.mailResult.setMessageID(messageId);
+    this.chunking = config.isChunking() && connection.getCapa().isCapaChunking();
   }
 
   /**
@@ -64,6 +78,37 @@ class SMTPSendMail {
       .onComplete(resultHandler);
   }
 
+  /**
+   * Starts a mail transaction whose envelope is sent together with the end of data of the previous transaction
+   * on the same connection, see {@link #setSuccessor(Supplier)}.
+   */
+  void startPipelinedTransaction(final Handler<AsyncResult<MailResult>> resultHandler) {
+    pipelinedEnvelope = Promise.promise();
+    pipelinedEnvelope.future()
+      .flatMap(this::sendMailData)
+      .onComplete(resultHandler);
+  }
+
+  /**
+   * Sets the supplier of the next transaction on the same connection.
+   * <p>
+   * The supplier is asked when the end of data is sent and may complete its future on another context. If the
+   * future completes with a transaction that has been started with {@link #startPipelinedTransaction(Handler)}, the
+   * envelope of that transaction is sent in the same command group as the end of data (RFC 2920), otherwise the end
+   * of data is sent alone.
+   */
+  void setSuccessor(Supplier<Future<SMTPSendMail>> successor) {
+    this.successor = successor;
+  }
+
+  /**
+   * Returns true if the transaction failed because the end of data of the previous transaction it was pipelined
+   * with has been rejected. The mail has not been attempted then and can be sent again.
+   */
+  boolean isPreviousFailed() {
+    return previousFailed;
+  }
+
   /**
    * Check if message size is allowed if size is supported.
    * <p>
@@ -125,52 +170,13 @@ class SMTPSendMail {
         final String mailFromLine = "MAIL FROM:<" + mailFromAddress() + ">" + sizeParameter();
         final List<String> allRecipients = allRecipients();
         if (config.isPipelining() && connection.getCapa().isCapaPipelining()) {
-          final List<String> groupCommands = new ArrayList<>();
-          groupCommands.add(mailFromLine);
-          groupCommands.addAll(allRecipients.stream().map(r -> "RCPT TO:<" + r + ">").collect(Collectors.toList()));
-          groupCommands.add("DATA");
-          connection.writeCommands(groupCommands, evenlopeResultStr -> {
-            String[] evenlopeResult = linePattern.split(evenlopeResultStr);
-            if (groupCommands.size() != evenlopeResult.length) {
-              evenlopePromise.fail("Sent " + groupCommands.size() + " commands, but got " + evenlopeResult.length + " responses.");
-            } else {
-              // result follows the same order in the commands list
-              for (int i = 0; i < evenlopeResult.length; i ++) {
-                String message = evenlopeResult[i];
-                if (i == 0) {
-                  if (!StatusCode.isStatusOk(message)) {
-                    evenlopePromise.fail("sender address not accepted: " + message);
-                    return;
-                  }
-                } else if (i < evenlopeResult.length - 1) {
-                  if (StatusCode.isStatusOk(message)) {
-                    mailResult.getRecipients().add(allRecipients.get(i - 1));
-                  } else {
-                    if (!config.isAllowRcptErrors()) {
-                      evenlopePromise.fail("recipient address not accepted: " + message);
-                      return;
-                    }
-                  }
-                } else {
-                  // DATA result
-                  if (StatusCode.isStatusOk(message)) {
-                    if (mailResult.getRecipients().size() == 0) {
-                      // send dot only
-                      evenlopePromise.complete(false);
-                      return;
-                    }
-                  } else {
-                    evenlopePromise.fail("DATA command not accepted: " + message);
-                    return;
-                  }
-                }
-              }
-              evenlopePromise.complete(true);
-            }
-          });
+          final List<String> groupCommands = envelopeCommands(mailFromLine, allRecipients);
+          connection.writeCommands(groupCommands,
+            evenlopeResultStr -> handleEnvelopeReplies(groupCommands, allRecipients, evenlopeResultStr, evenlopePromise));
         } else {
           // sent line by line because PIPELINING is not supported
-          Future<Void> future = sendMailFrom(mailFromLine);
+          Future<Void> future = connection.isResetPending() ? sendReset() : Future.succeededFuture();
+          future = future.flatMap(v -> sendMailFrom(mailFromLine));
           for (String email: allRecipients) {
             future = future.flatMap(v -> sendRcptTo(email));
           }
@@ -185,6 +191,105 @@ class SMTPSendMail {
     return evenlopePromise.future();
   }
 
+  // a pooled connection is checked with RSET in the same command group (RFC 2920)
+  private List<String> envelopeCommands(String mailFromLine, List<String> allRecipients) {
+    final List<String> groupCommands = new ArrayList<>();
+    if (connection.isResetPending()) {
+      groupCommands.add("RSET");
+    }
+    groupCommands.add(mailFromLine);
+    groupCommands.addAll(allRecipients.stream().map(r -> "RCPT TO:<" + r + ">").collect(Collectors.toList()));
+    if (!chunking) {
+      groupCommands.add("DATA");
+    }
+    return groupCommands;
+  }
+
+  private void sendEnvelopeWithEndDot(Handler<String> endDotHandler) {
+    try {
+      if (checkSize()) {
+        final String mailFromLine = "MAIL FROM:<" + mailFromAddress() + ">" + sizeParameter();
+        final List<String> allRecipients = allRecipients();
+        final List<String> groupCommands = envelopeCommands(mailFromLine, allRecipients);
+        connection.writeCommandGroups(Arrays.asList(Collections.singletonList("."), groupCommands),
+          Arrays.asList(endDotHandler,
+            evenlopeResultStr -> handleEnvelopeReplies(groupCommands, allRecipients, evenlopeResultStr, pipelinedEnvelope)));
+        return;
+      }
+      pipelinedEnvelope.fail("message exceeds allowed size limit");
+    } catch (Exception e) {
+      pipelinedEnvelope.fail(e);
+    }
+    connection.write(".", endDotHandler);
+  }
+
+  private void handleEnvelopeReplies(List<String> groupCommands, List<String> allRecipients, String evenlopeResultStr,
+                                     Promise<Boolean> evenlopePromise) {
+    final int first = "RSET".equals(groupCommands.get(0)) ? 1 : 0;
+    String[] evenlopeResult = linePattern.split(evenlopeResultStr);
+    if (groupCommands.size() != evenlopeResult.length) {
+      evenlopePromise.tryFail("Sent " + groupCommands.size() + " commands, but got " + evenlopeResult.length + " responses.");
+    } else {
+      if (first == 1) {
+        // the replies to the envelope are meaningless if the connection could not be reset
+        if (!StatusCode.isStatusOk(evenlopeResult[0])) {
+          evenlopePromise.tryFail("reset command failed: " + evenlopeResult[0]);
+          return;
+        }
+        connection.setResetPending(false);
+      }
+      // result follows the same order in the commands list
+      for (int i = first; i < evenlopeResult.length; i ++) {
+        String message = evenlopeResult[i];
+        if (i == first) {
+          if (!StatusCode.isStatusOk(message)) {
+            evenlopePromise.tryFail("sender address not accepted: " + message);
+            return;
+          }
+        } else if (i < evenlopeResult.length - 1 || chunking) {
+          if (StatusCode.isStatusOk(message)) {
+            mailResult.getRecipients().add(allRecipients.get(i - first - 1));
+          } else {
+            if (!config.isAllowRcptErrors()) {
+              evenlopePromise.tryFail("recipient address not accepted: " + message);
+              return;
+            }
+          }
+        } else {
+          // DATA result
+          if (StatusCode.isStatusOk(message)) {
+            if (mailResult.getRecipients().size() == 0) {
+              // send dot only
+              evenlopePromise.tryComplete(false);
+              return;
+            }
+          } else {
+            evenlopePromise.tryFail("DATA command not accepted: " + message);
+            return;
+          }
+        }
+      }
+      if (chunking && mailResult.getRecipients().size() == 0) {
+        evenlopePromise.tryFail("no recipient addresses were accepted, not sending mail");
+        return;
+      }
+      evenlopePromise.tryComplete(true);
+    }
+  }
+
+  private Future<Void> sendReset() {
+    Promise<Void> promise = Promise.promise();
+    connection.write("RSET", message -> {
+      if (StatusCode.isStatusOk(message)) {
+        connection.setResetPending(false);
+        promise.complete();
+      } else {
+        promise.fail("reset command failed: " + message);
+      }
+    });
+    return promise.future();
+  }
+
   private Future<Void> sendMailFrom(String mailFromLine) {
     Promise<Void> promise = Promise.promise();
     connection.write(mailFromLine, message -> {
@@ -232,7 +337,10 @@ class SMTPSendMail {
   private Future<Boolean> sendDataCmd() {
     Promise<Boolean> promise = Promise.promise();
     try {
-      if (mailResult.getRecipients().size() > 0) {
+      if (mailResult.getRecipients().size() > 0 && chunking) {
+        // the data is sent with BDAT
+        promise.complete(true);
+      } else if (mailResult.getRecipients().size() > 0) {
         connection.write("DATA", message -> {
           if (log.isDebugEnabled()) {
             written.getAndAdd(4);
@@ -256,6 +364,9 @@ class SMTPSendMail {
     if (!includeData) {
       return sendEndDot();
     }
+    if (chunking) {
+      bdatStream = new BdatWriteStream(connection, config.isPipelining() && connection.getCapa().isCapaPipelining());
+    }
     return sendMailHeaders(this.encodedPart.headers())
       .flatMap(v -> sendMailBody())
       .flatMap(v -> sendEndDot());
@@ -264,24 +375,81 @@ class SMTPSendMail {
   private Future<Void> sendMailHeaders(MultiMap headers) {
     Promise<Void> promise = Promise.promise();
     try {
-      StringBuilder sb = new StringBuilder();
-      headers.forEach(header -> sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n"));
-      final String headerLines = sb.toString();
-      connection.writeLineWithDrainPromise(headerLines, written.getAndAdd(headerLines.length()) < 1000, promise);
+      final Buffer headerLines = Buffer.buffer();
+      headers.forEach(header -> headerLines.appendString(header.getKey()).appendString(": ")
+        .appendString(header.getValue()).appendString("\r\n"));
+      headerLines.appendString("\r\n");
+      if (written.getAndAdd(headerLines.length()) < 1000 && log.isDebugEnabled()) {
+        log.debug(headerLines.toString());
+      }
+      writeData(headerLines, promise);
     } catch (Exception e) {
       promise.fail(e);
     }
     return promise.future();
   }
 
+  // the stream the mail data is written to, the data is collected into larger writes by the stream
+  private WriteStream<Buffer> dataStream() {
+    return bdatStream != null ? bdatStream : connection.dataStream();
+  }
+
+  // write single line of the mail data not expecting a reply
+  private void writeLine(String str, boolean mayLog, Promise<Void> promise) {
+    if (mayLog) {
+      log.debug(str);
+    }
+    writeData(Buffer.buffer(str + "\r\n"), promise);
+  }
+
+  private void writeData(Buffer data, Promise<Void> promise) {
+    final WriteStream<Buffer> out = dataStream();
+    out.write(data).onComplete(v -> {
+      if (v.succeeded() && out.writeQueueFull()) {
+        out.drainHandler(d -> {
+          out.drainHandler(null);
+          promise.complete();
+        });
+      } else {
+        promise.handle(v);
+      }
+    });
+  }
+
   private Future<MailResult> sendEndDot() {
     Promise<MailResult> promise = Promise.promise();
-    try {
-      connection.getContext().runOnContext(v -> connection.write(".", msg -> {
-        if (StatusCode.isStatusOk(msg)) {
+    if (bdatStream != null) {
+      // BDAT LAST ends the mail data, the next envelope is not pipelined with it
+      bdatStream.end(v -> {
+        if (v.succeeded()) {
+          connection.countMail();
           promise.complete(mailResult);
         } else {
-          promise.fail("sending data failed: " + msg);
+          promise.fail(v.cause());
+        }
+      });
+      return promise.future();
+    }
+    try {
+      final Future<SMTPSendMail> successorFuture = successor != null ? successor.get() : Future.succeededFuture();
+      successorFuture.onComplete(s -> connection.getContext().runOnContext(v -> {
+        final SMTPSendMail next = s.succeeded() ? s.result() : null;
+        final Handler<String> endDotHandler = msg -> {
+          if (StatusCode.isStatusOk(msg)) {
+            connection.countMail();
+            promise.complete(mailResult);
+          } else {
+            promise.fail("sending data failed: " + msg);
+            if (next != null) {
+              next.previousFailed = true;
+              next.pipelinedEnvelope.tryFail("previous mail failed: " + msg);
+            }
+          }
+        };
+        if (next != null) {
+          next.sendEnvelopeWithEndDot(endDotHandler);
+        } else {
+          connection.write(".", endDotHandler);
         }
       }));
     } catch (Exception e) {
@@ -319,7 +487,7 @@ class SMTPSendMail {
             if (vv.succeeded()) {
               if (i == multiPart.parts().size() - 1) {
                 String boundaryEnd = boundaryStart + "--";
-                connection.writeLineWithDrainPromise(boundaryEnd, written.getAndAdd(boundaryEnd.length()) < 1000, promise);
+                writeLine(boundaryEnd, written.getAndAdd(boundaryEnd.length()) < 1000, promise);
               } else {
                 sendMultiPart(multiPart, i + 1, promise);
               }
@@ -336,7 +504,7 @@ class SMTPSendMail {
           promise.fail(v.cause());
         }
       });
-      connection.writeLineWithDrainPromise(boundaryStart, written.getAndAdd(boundaryStart.length()) < 1000, boundaryStartPromise);
+      writeLine(boundaryStart, written.getAndAdd(boundaryStart.length()) < 1000, boundaryStartPromise);
     } catch (Exception e) {
       promise.fail(e);
     }
@@ -346,34 +514,18 @@ class SMTPSendMail {
     return part.parts() != null && part.parts().size() > 0;
   }
 
-  private void sendBodyLineByLine(String[] lines, int i, Promise<Void> promise) {
-    if (i < lines.length) {
-      String line = lines[i];
-      if (line.startsWith(".")) {
-        line = "." + line;
-      }
-      Promise<Void> writeLinePromise = Promise.promise();
-      connection.writeLineWithDrainPromise(line, written.getAndAdd(line.length()) < 1000, writeLinePromise);
-      writeLinePromise.future().onComplete(v -> {
-        if (v.succeeded()) {
-          sendBodyLineByLine(lines, i + 1, promise);
-        } else {
-          promise.fail(v.cause());
-        }
-      });
-    } else {
-      promise.complete();
-    }
-  }
-
   private void sendRegularPartBody(EncodedPart part, Promise<Void> promise) {
     if (part.body() != null) {
-      // send body string line by line
-      sendBodyLineByLine(part.body().split("\n"), 0, promise);
+      // BDAT needs no dot-stuffing
+      final String body = part.body();
+      if (written.getAndAdd(body.length()) < 1000 && log.isDebugEnabled()) {
+        log.debug(body.length() > 1000 ? body.substring(0, 1000) + "..." : body);
+      }
+      new MailBodyWriter(dataStream(), bdatStream == null).write(body, promise);
     } else {
       ReadStream<Buffer> attachBodyStream = part.bodyStream(connection.getContext());
       if (attachBodyStream != null) {
-        attachBodyStream.pipe().endOnComplete(false).to(connection.getSocket(), promise);
+        attachBodyStream.pipe().endOnComplete(false).to(dataStream(), promise);
       } else {
         promise.fail(new IllegalStateException("No mail body and stream found"));
       }
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2011-2019 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl.dkim;
+
+import io.vertx.ext.mail.CanonicalizationAlgorithm;
+
+/**
+ * Canonicalizes a message body for the DKIM body hash in one pass without copying it, the canonical bytes are
+ * written in small chunks to a {@link Sink}.
+ * <p>
+ * The body is split into lines at CRLF, CR or LF. The simple algorithm keeps the lines as they are, the relaxed
+ * algorithm reduces each whitespace run to one space and removes the whitespace at the end of the lines. The line
+ * ends are counted and only written before the next non-empty line, so the empty lines at the end of the body are
+ * dropped and the body ends with one CRLF. Characters other than US-ASCII are written as UTF-8 like the message data.
+ *
+ * https://tools.ietf.org/html/rfc6376#section-3.4.3
+ * https://tools.ietf.org/html/rfc6376#section-3.4.4
+ */
+class BodyCanonicalizer {
+
+  private static final int BUFFER_SIZE = 512;
+
+  /**
+   * receives the canonical bytes of a body
+   */
+  interface Sink {
+
+    /**
+     * @param bytes the buffer, it is reused after the call
+     * @param length the number of canonical bytes in the buffer
+     * @return false if no more bytes are needed
+     */
+    boolean write(byte[] bytes, int length);
+  }
+
+  private final boolean relaxed;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private Sink sink;
+  private boolean more;
+
+  BodyCanonicalizer(CanonicalizationAlgorithm canon) {
+    this.relaxed = canon == CanonicalizationAlgorithm.RELAXED;
+  }
+
+  /**
+   * canonicalize a body, it stops when the sink does not need more bytes
+   *
+   * @param body the body
+   * @param sink the sink of the canonical bytes
+   * @return false if the sink does not need more bytes
+   */
+  boolean canonicalize(CharSequence body, Sink sink) {
+    this.sink = sink;
+    this.position = 0;
+    this.more = true;
+    // the line ends that are not written yet
+    int lineEnds = 0;
+    // whitespace after the last written character of the line
+    boolean space = false;
+    boolean afterCr = false;
+    for (int i = 0; i < body.length() && more; i++) {
+      final char c = body.charAt(i);
+      if (c == '\n' && afterCr) {
+        afterCr = false;
+      } else if (c == '\r' || c == '\n') {
+        afterCr = c == '\r';
+        lineEnds++;
+        space = false;
+      } else {
+        afterCr = false;
+        if (relaxed && (c == ' ' || c == '\t')) {
+          space = true;
+          continue;
+        }
+        for (; lineEnds > 0; lineEnds--) {
+          put((byte) '\r');
+          put((byte) '\n');
+        }
+        if (space) {
+          put((byte) ' ');
+          space = false;
+        }
+        if (c < 0x80) {
+          put((byte) c);
+        } else {
+          i = putNonAscii(body, i);
+        }
+      }
+    }
+    if (more) {
+      put((byte) '\r');
+      put((byte) '\n');
+    }
+    if (more && position > 0) {
+      more = sink.write(buffer, position);
+    }
+    this.sink = null;
+    return more;
+  }
+
+  // writes the code point as UTF-8 and returns the index of its last char
+  private int putNonAscii(CharSequence body, int index) {
+    int codePoint = Character.codePointAt(body, index);
+    if (Character.isSurrogate((char) codePoint)) {
+      // an unpaired surrogate is written as '?' like String.getBytes does
+      put((byte) '?');
+      return index;
+    }
+    if (codePoint < 0x800) {
+      put((byte) (0xc0 | (codePoint >> 6)));
+    } else if (codePoint < 0x10000) {
+      put((byte) (0xe0 | (codePoint >> 12)));
+      put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+    } else {
+      put((byte) (0xf0 | (codePoint >> 18)));
+      put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+      put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+    }
+    put((byte) (0x80 | (codePoint & 0x3f)));
+    return index + Character.charCount(codePoint) - 1;
+  }
+
+  private void put(byte b) {
+    if (position == buffer.length) {
+      more = more && sink.write(buffer, position);
+      position = 0;
+    }
+    buffer[position++] = b;
+  }
+
+}
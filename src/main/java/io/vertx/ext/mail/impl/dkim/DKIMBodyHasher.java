@@ -0,0 +1,366 @@
+/*
+ *  Copyright (c) 2011-2019 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl.dkim;
+
+import io.vertx.codegen.annotations.Nullable;
+import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.Pipe;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.ext.mail.CanonicalizationAlgorithm;
+import io.vertx.ext.mail.DKIMSignOptions;
+import io.vertx.ext.mail.mailencoder.EncodedPart;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Computes the DKIM body hashes of a message for a number of signers in one walk through the message.
+ * <p>
+ * There is one digest for each distinct body hash key of the signers, see {@link DKIMSigner#bodyHashKey()}. The
+ * attachment streams are read once and their data is fed to all digests, each digest stops at its own body limit.
+ * The walk ends when all digests have reached their body limit or the end of the message.
+ * <p>
+ * With a {@link WorkerExecutor} the canonicalization and hashing run as ordered blocking tasks on the worker pool.
+ * The parts in memory between two attachment streams are hashed by one task, the data of an attachment stream is
+ * collected in chunks of {@value #CHUNK_SIZE} bytes and each chunk is hashed by one task. Only the walk through the
+ * message and the reading of the attachment streams stay on the context, the attachment streams are paused while
+ * too many chunks are waiting.
+ *
+ * https://tools.ietf.org/html/rfc6376#section-3.7
+ */
+class DKIMBodyHasher {
+
+  // the size of the chunks of attachment stream data hashed by one task on the worker pool
+  private static final int CHUNK_SIZE = 64 * 1024;
+  // the max number of tasks waiting for the worker pool before the attachment stream is paused
+  private static final int MAX_PENDING_TASKS = 8;
+
+  private final List<Digest> digests = new ArrayList<>();
+  // a canonicalizer for each body canonicalization algorithm of the digests
+  private final Map<CanonicalizationAlgorithm, BodyCanonicalizer> canonicalizers =
+    new EnumMap<>(CanonicalizationAlgorithm.class);
+  private final WorkerExecutor executor;
+  // true when all digests have reached their body limit, it is set by the tasks
+  private volatile boolean done;
+  // the work on the parts in memory that is not submitted yet, the tasks waiting for the worker pool and the first
+  // failed task, only used on the context
+  private List<Runnable> segment = new ArrayList<>();
+  private int pendingTasks;
+  private Throwable taskFailure;
+  private Handler<Void> drainHandler;
+
+  /**
+   * a digest of one body hash key with the number of bytes it has hashed
+   */
+  private static class Digest {
+    final String key;
+    final MessageDigest md;
+    final CanonicalizationAlgorithm canonAlgo;
+    final int bodyLimit;
+    int written;
+
+    Digest(String key, MessageDigest md, CanonicalizationAlgorithm canonAlgo, int bodyLimit) {
+      this.key = key;
+      this.md = md;
+      this.canonAlgo = canonAlgo;
+      this.bodyLimit = bodyLimit;
+    }
+
+    boolean isDone() {
+      return bodyLimit > 0 && written >= bodyLimit;
+    }
+
+    // counts the bytes as written and returns how many of them are hashed
+    int accept(int length) {
+      if (bodyLimit > 0) {
+        int len = Math.max(0, Math.min(bodyLimit - written, length));
+        written += len;
+        return len;
+      }
+      return length;
+    }
+  }
+
+  /**
+   * @param signOptions the options of the signers
+   * @param executor the worker pool to run the canonicalization and hashing or null to run them on the calling thread
+   * @throws NoSuchAlgorithmException if a hash algorithm is not available
+   */
+  DKIMBodyHasher(Collection<DKIMSignOptions> signOptions, WorkerExecutor executor) throws NoSuchAlgorithmException {
+    this.executor = executor;
+    final Set<String> keys = new HashSet<>();
+    for (DKIMSignOptions ops : signOptions) {
+      final String key = DKIMSigner.bodyHashKey(ops);
+      if (keys.add(key)) {
+        final MessageDigest md = MessageDigest.getInstance(ops.getSignAlgo().hashAlgorithm());
+        digests.add(new Digest(key, md, ops.getBodyCanonAlgo(), ops.getBodyLimit()));
+        canonicalizers.computeIfAbsent(ops.getBodyCanonAlgo(), BodyCanonicalizer::new);
+      }
+    }
+  }
+
+  /**
+   * walk through the message and compute the body hashes
+   *
+   * @param context the Vert.x Context to read the attachment streams
+   * @param encodedMessage the message
+   * @return the Future of the base64 encoded body hashes by body hash key
+   */
+  Future<Map<String, String>> hash(Context context, EncodedPart encodedMessage) {
+    final Promise<Void> walkThrough = Promise.promise();
+    if (encodedMessage.parts() != null && encodedMessage.parts().size() > 0) {
+      walkThroughMultiPart(context, encodedMessage, 0, walkThrough);
+    } else {
+      digestBody(encodedMessage.body());
+      walkThrough.complete();
+    }
+    return walkThrough.future().compose(v -> {
+      if (executor == null) {
+        return Future.succeededFuture(bodyHashes());
+      }
+      submitSegment();
+      // ordered after all tasks, the result is handled on the context
+      return executor.<Map<String, String>>executeBlocking(p -> p.complete(bodyHashes()), true)
+        .compose(bhs -> taskFailure == null ? Future.succeededFuture(bhs) : Future.failedFuture(taskFailure));
+    });
+  }
+
+  private Map<String, String> bodyHashes() {
+    final Map<String, String> bodyHashes = new HashMap<>();
+    digests.forEach(d -> bodyHashes.put(d.key, Base64.getEncoder().encodeToString(d.md.digest())));
+    return bodyHashes;
+  }
+
+  private void digest(byte[] bytes) {
+    run(() -> update(ByteBuffer.wrap(bytes)));
+  }
+
+  private void digestBody(String body) {
+    run(() -> canonicalize(body));
+  }
+
+  private void update(ByteBuffer bytes) {
+    for (Digest d : digests) {
+      final int len = d.accept(bytes.remaining());
+      if (len > 0) {
+        final ByteBuffer hashed = bytes.duplicate();
+        hashed.limit(hashed.position() + len);
+        d.md.update(hashed);
+      }
+    }
+    checkDone();
+  }
+
+  // the body is canonicalized once for each canonicalization algorithm, the canonical bytes are fed to the digests
+  // in small chunks and the canonicalization stops when the digests have reached their body limit
+  private void canonicalize(String body) {
+    canonicalizers.forEach((canonAlgo, canonicalizer) -> canonicalizer.canonicalize(body, (bytes, length) -> {
+      boolean more = false;
+      for (Digest d : digests) {
+        if (d.canonAlgo == canonAlgo && !d.isDone()) {
+          d.md.update(bytes, 0, d.accept(length));
+          more |= !d.isDone();
+        }
+      }
+      return more;
+    }));
+    checkDone();
+  }
+
+  private void checkDone() {
+    done = digests.stream().allMatch(Digest::isDone);
+  }
+
+  // the work on the parts in memory is run at once without a worker pool, otherwise it is collected until the next
+  // attachment stream or the end of the message
+  private void run(Runnable work) {
+    if (executor == null) {
+      work.run();
+    } else {
+      segment.add(work);
+    }
+  }
+
+  private void submitSegment() {
+    if (!segment.isEmpty()) {
+      final List<Runnable> work = segment;
+      segment = new ArrayList<>();
+      submit(() -> work.forEach(Runnable::run));
+    }
+  }
+
+  // the tasks are ordered, so the digests are updated by one worker thread at a time in the order of the message
+  private void submit(Runnable task) {
+    pendingTasks++;
+    executor.<Void>executeBlocking(p -> {
+      task.run();
+      p.complete();
+    }, true, ar -> {
+      pendingTasks--;
+      if (ar.failed() && taskFailure == null) {
+        taskFailure = ar.cause();
+      }
+      if (drainHandler != null && pendingTasks < MAX_PENDING_TASKS) {
+        final Handler<Void> handler = drainHandler;
+        drainHandler = null;
+        handler.handle(null);
+      }
+    });
+  }
+
+  private void digestBoundaryStartAndHeaders(String boundaryStart, EncodedPart part) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(boundaryStart);
+    part.headers().forEach(entry -> sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n"));
+    sb.append("\r\n");
+    digest(sb.toString().getBytes());
+  }
+
+  private void walkThroughMultiPart(Context context, EncodedPart multiPart, int index, Promise<Void> promise) {
+    String boundaryStart = "--" + multiPart.boundary() + "\r\n";
+    String boundaryEnd = "--" + multiPart.boundary() + "--";
+    if (index < multiPart.parts().size()) {
+      EncodedPart part = multiPart.parts().get(index);
+
+      Promise<Void> nextPartPromise = Promise.promise();
+      nextPartPromise.future().onComplete(r -> {
+        if (r.succeeded()) {
+          walkThroughMultiPart(context, multiPart, index + 1, promise);
+        } else {
+          promise.fail(r.cause());
+        }
+      });
+      // boundary and header, then body
+      digestBoundaryStartAndHeaders(boundaryStart, part);
+      if (!done) {
+        if (part.parts() != null && part.parts().size() > 0) {
+          // part is a multipart as well
+          walkThroughMultiPart(context, part, 0, nextPartPromise);
+        } else if (part.body() != null) {
+          // walk through part body
+          digestBody(part.body());
+          nextPartPromise.complete();
+        } else {
+          ReadStream<Buffer> dkimAttachStream = part.dkimBodyStream(context);
+          if (dkimAttachStream != null) {
+            walkThroughAttachStream(dkimAttachStream, nextPartPromise);
+          } else {
+            nextPartPromise.fail("No data and stream found.");
+          }
+        }
+      } else {
+        promise.complete();
+      }
+    } else {
+      // after last part has been walked through
+      digest((boundaryEnd + "\r\n").getBytes());
+      promise.complete();
+    }
+  }
+
+  // the attachPart is a base64 encoded stream already when this method is called.
+  private void walkThroughAttachStream(ReadStream<Buffer> stream, Promise<Void> promise) {
+    if (executor != null) {
+      // the parts before the stream are hashed first
+      submitSegment();
+    }
+    final Pipe<Buffer> pipe = stream.pipe();
+    Promise<Void> pipePromise = Promise.promise();
+    pipePromise.future().onComplete(pr -> {
+      pipe.close();
+      if (pr.succeeded()) {
+        promise.complete();
+      } else {
+        promise.fail(pr.cause());
+      }
+    });
+    pipe.to(new WriteStream<Buffer>() {
+      // the data collected for the next task on the worker pool
+      private Buffer chunk;
+
+      @Override
+      public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+        return this;
+      }
+
+      @Override
+      public Future<Void> write(Buffer data) {
+        Promise<Void> promise = Promise.promise();
+        write(data, promise);
+        return promise.future();
+      }
+
+      @Override
+      public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+        // the rest of the stream is read but not hashed when all digests are done
+        if (!done) {
+          if (executor == null) {
+            update(data.getByteBuf().nioBuffer());
+          } else {
+            if (chunk == null) {
+              chunk = Buffer.buffer(CHUNK_SIZE);
+            }
+            chunk.appendBuffer(data);
+            if (chunk.length() >= CHUNK_SIZE) {
+              submitChunk();
+            }
+          }
+        }
+        if (handler != null) {
+          handler.handle(Future.succeededFuture());
+        }
+      }
+
+      private void submitChunk() {
+        if (chunk != null) {
+          final ByteBuffer bytes = chunk.getByteBuf().nioBuffer();
+          chunk = null;
+          submit(() -> update(bytes));
+        }
+      }
+
+      @Override
+      public void end(Handler<AsyncResult<Void>> handler) {
+        submitChunk();
+        if (handler != null) {
+          handler.handle(Future.succeededFuture());
+        }
+      }
+
+      @Override
+      public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+        return this;
+      }
+
+      @Override
+      public boolean writeQueueFull() {
+        return pendingTasks >= MAX_PENDING_TASKS;
+      }
+
+      @Override
+      public WriteStream<Buffer> drainHandler(@Nullable Handler<Void> handler) {
+        drainHandler = handler;
+        return this;
+      }
+    }, pipePromise);
+  }
+
+}
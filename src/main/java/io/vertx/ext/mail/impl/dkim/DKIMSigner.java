@@ -16,26 +16,22 @@
 
 package io.vertx.ext.mail.impl.dkim;
 
-import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.*;
-import io.vertx.core.buffer.Buffer;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
-import io.vertx.core.streams.Pipe;
-import io.vertx.core.streams.ReadStream;
-import io.vertx.core.streams.WriteStream;
+import io.vertx.ext.mail.DKIMSignAlgorithm;
 import io.vertx.ext.mail.DKIMSignOptions;
 import io.vertx.ext.mail.CanonicalizationAlgorithm;
 import io.vertx.ext.mail.mailencoder.EncodedPart;
 import io.vertx.ext.mail.mailencoder.Utils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 /**
@@ -53,39 +49,60 @@ public class DKIMSigner {
 
   private final DKIMSignOptions dkimSignOptions;
   private final String signatureTemplate;
-  private final Signature signatureService;
-  private static final Pattern DELIMITER = Pattern.compile("\n");
+  private final PrivateKey privateKey;
+  // initialized Signatures that are not in use, a Signature cannot be used by several threads at the same time
+  private final Queue<Signature> signatures = new ConcurrentLinkedQueue<>();
+  // the worker pool to compute the signatures or null to compute them on the context
+  private final WorkerExecutor executor;
 
   /**
    * The Constuctor of DKIMSigner.
    *
    * It validates the {@link DKIMSignOptions} which may throws IllegalStateException.
    *
-   * It tries to initialize a {@link Signature} so that it can be reused on each sign.
+   * It tries to initialize a {@link Signature} so that it can be reused on each sign, more Signatures are initialized
+   * when several threads sign at the same time.
    *
    * @param dkimSignOptions the {@link DKIMSignOptions} used to perform the DKIM Sign.
    * @throws IllegalStateException the exception to throw on invalid configurations.
    */
   public DKIMSigner(DKIMSignOptions dkimSignOptions, final Vertx vertx) {
+    this(dkimSignOptions, vertx, null);
+  }
+
+  /**
+   * The Constuctor of DKIMSigner computing the signatures on a worker pool.
+   *
+   * @param dkimSignOptions the {@link DKIMSignOptions} used to perform the DKIM Sign.
+   * @param executor the worker pool to compute the signatures or null to compute them on the context
+   * @throws IllegalStateException the exception to throw on invalid configurations.
+   */
+  public DKIMSigner(DKIMSignOptions dkimSignOptions, final Vertx vertx, WorkerExecutor executor) {
     this.dkimSignOptions = dkimSignOptions;
+    this.executor = executor;
     validate(this.dkimSignOptions);
     this.signatureTemplate = dkimSignatureTemplate();
     try {
-      KeyFactory kf = KeyFactory.getInstance("RSA");
+      KeyFactory kf = KeyFactory.getInstance(dkimSignOptions.getSignAlgo().keyAlgorithm());
       String secretKey = dkimSignOptions.getPrivateKey();
       if (secretKey == null) {
         // private key file should be small, read it directly.
         secretKey = vertx.fileSystem().readFileBlocking(dkimSignOptions.getPrivateKeyPath()).toString();
       }
       final PKCS8EncodedKeySpec keyspec = new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(secretKey));
-      final PrivateKey privateKey = kf.generatePrivate(keyspec);
-      signatureService = Signature.getInstance(dkimSignOptions.getSignAlgo().signatureAlgorithm());
-      signatureService.initSign(privateKey);
+      privateKey = kf.generatePrivate(keyspec);
+      signatures.add(newSignature());
     } catch (NoSuchAlgorithmException | InvalidKeyException | InvalidKeySpecException e) {
       throw new IllegalStateException("Failed to init the Signature", e);
     }
   }
 
+  private Signature newSignature() throws NoSuchAlgorithmException, InvalidKeyException {
+    final Signature signature = Signature.getInstance(dkimSignOptions.getSignAlgo().signatureAlgorithm());
+    signature.initSign(privateKey);
+    return signature;
+  }
+
   /**
    * Validate whether the values are following the spec.
    *
@@ -109,11 +126,20 @@ public class DKIMSigner {
       throw new IllegalStateException("From field must be selected to sign.");
     }
 
+    // Ed25519 is provided by the JDK since Java 15 only
+    if (ops.getSignAlgo() == DKIMSignAlgorithm.ED25519_SHA256) {
+      try {
+        Signature.getInstance(ops.getSignAlgo().signatureAlgorithm());
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("ed25519-sha256 needs Java 15 or later or a security provider supporting Ed25519", e);
+      }
+    }
+
   }
 
   private void checkRequiredFields(DKIMSignOptions ops) {
     if (ops.getSignAlgo() == null) {
-      throw new IllegalStateException("Sign Algorithm is required: rsa-sha1 or rsa-sha256");
+      throw new IllegalStateException("Sign Algorithm is required: rsa-sha1, rsa-sha256 or ed25519-sha256");
     }
     if (ops.getPrivateKey() == null && ops.getPrivateKeyPath() == null) {
       throw new IllegalStateException("Either private key or private key file path must be specified to sign");
@@ -179,208 +205,120 @@ public class DKIMSigner {
    * @return The Future with a result as the value of header: 'DKIM-Signature'
    */
   public Future<String> signEmail(Context context, EncodedPart encodedMessage) {
-    return bodyHashing(context, encodedMessage).map(bh -> {
+    return signEmail(encodedMessage, bodyHash(context, encodedMessage));
+  }
+
+  /**
+   * Perform the DKIM Signature sign action with a body hash computed before, e.g. by another signer with the same
+   * {@link #bodyHashKey()}.
+   *
+   * @param encodedMessage The Encoded Message to be ready to sent to the wire
+   * @param bodyHash the Future of the body hash of the message
+   * @return The Future with a result as the value of header: 'DKIM-Signature'
+   */
+  public Future<String> signEmail(EncodedPart encodedMessage, Future<String> bodyHash) {
+    return bodyHash.compose(bh -> {
       if (logger.isDebugEnabled()) {
         logger.debug("DKIM Body Hash: " + bh);
       }
-      try {
-        final StringBuilder dkimTagListBuilder = dkimTagList(encodedMessage).append("bh=").append(bh).append("; b=");
-        String dkimSignHeaderCanonic = canonicHeader(DKIM_SIGNATURE_HEADER, dkimTagListBuilder.toString());
-        final String tobeSigned = headersToSign(encodedMessage).append(dkimSignHeaderCanonic).toString();
-        if (logger.isDebugEnabled()) {
-          logger.debug("To be signed DKIM header: " + tobeSigned);
-        }
-        String returnStr;
-        synchronized (signatureService) {
-          signatureService.update(tobeSigned.getBytes());
-          String sig = Base64.getEncoder().encodeToString(signatureService.sign());
-          returnStr = dkimTagListBuilder.append(sig).toString();
-        }
-        if (logger.isDebugEnabled()) {
-          logger.debug(DKIM_SIGNATURE_HEADER + ": " + returnStr);
-        }
-        return returnStr;
-      } catch (Exception e) {
-        throw new RuntimeException("Cannot sign email", e);
+      if (executor == null) {
+        return Future.succeededFuture(sign(encodedMessage, bh));
       }
+      // the result is handled on the context
+      return executor.executeBlocking(p -> p.complete(sign(encodedMessage, bh)), false);
     });
   }
 
-  // the attachPart is a base64 encoded stream already when this method is called.
-  private void walkThroughAttachStream(MessageDigest md, ReadStream<Buffer> stream, AtomicInteger written, Promise<Void> promise) {
-    final Pipe<Buffer> pipe = stream.pipe();
-    Promise<Void> pipePromise = Promise.promise();
-    pipePromise.future().onComplete(pr -> {
-      pipe.close();
-      if (pr.succeeded()) {
-        promise.complete();
-      } else {
-        promise.fail(pr.cause());
-      }
-    });
-    pipe.to(new WriteStream<Buffer>() {
-      private final AtomicBoolean ended = new AtomicBoolean(false);
-
-      @Override
-      public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
-        return this;
-      }
-
-      @Override
-      public Future<Void> write(Buffer data) {
-        Promise<Void> promise = Promise.promise();
-        write(data, promise);
-        return promise.future();
-      }
-
-      @Override
-      public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
-        if (!ended.get() && !digest(md, data.getBytes(), written)) {
-          // can be end now
-          ended.set(true);
-        }
-        if (handler != null) {
-          handler.handle(Future.succeededFuture());
-        }
+  private String sign(EncodedPart encodedMessage, String bh) {
+    try {
+      final StringBuilder dkimTagListBuilder = dkimTagList(encodedMessage).append("bh=").append(bh).append("; b=");
+      String dkimSignHeaderCanonic = canonicHeader(DKIM_SIGNATURE_HEADER, dkimTagListBuilder.toString());
+      final String tobeSigned = headersToSign(encodedMessage).append(dkimSignHeaderCanonic).toString();
+      if (logger.isDebugEnabled()) {
+        logger.debug("To be signed DKIM header: " + tobeSigned);
       }
-
-      @Override
-      public void end(Handler<AsyncResult<Void>> handler) {
-        ended.compareAndSet(false, true);
-        if (handler != null) {
-          handler.handle(Future.succeededFuture());
-        }
+      Signature signature = signatures.poll();
+      if (signature == null) {
+        signature = newSignature();
       }
-
-      @Override
-      public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
-        return this;
+      if (dkimSignOptions.getSignAlgo() == DKIMSignAlgorithm.ED25519_SHA256) {
+        // PureEdDSA signs the hash of the headers, see: https://tools.ietf.org/html/rfc8463#section-3
+        signature.update(MessageDigest.getInstance(dkimSignOptions.getSignAlgo().hashAlgorithm())
+          .digest(tobeSigned.getBytes()));
+      } else {
+        signature.update(tobeSigned.getBytes());
       }
-
-      @Override
-      public boolean writeQueueFull() {
-        return false;
+      String sig = Base64.getEncoder().encodeToString(signature.sign());
+      // sign() resets the Signature, it can be used again
+      signatures.offer(signature);
+      String returnStr = dkimTagListBuilder.append(sig).toString();
+      if (logger.isDebugEnabled()) {
+        logger.debug(DKIM_SIGNATURE_HEADER + ": " + returnStr);
       }
+      return returnStr;
+    } catch (Exception e) {
+      throw new RuntimeException("Cannot sign email", e);
+    }
+  }
 
-      @Override
-      public WriteStream<Buffer> drainHandler(@Nullable Handler<Void> handler) {
-        return this;
-      }
-    }, pipePromise);
+  /**
+   * The body hash depends on the hash algorithm, the body canonicalization and the body limit only, so signers with
+   * the same key compute the same body hash for a message.
+   *
+   * @return the key of the body hash of this signer
+   */
+  public String bodyHashKey() {
+    return bodyHashKey(dkimSignOptions);
   }
 
-  private boolean digest(MessageDigest md, byte[] bytes, AtomicInteger written) {
-    if (this.dkimSignOptions.getBodyLimit() > 0) {
-      int left = this.dkimSignOptions.getBodyLimit() - written.get();
-      if (left > 0) {
-        int len = Math.min(left, bytes.length);
-        md.update(bytes, 0, len);
-        written.getAndAdd(len);
-      } else {
-        return false;
-      }
-    } else {
-      md.update(bytes);
-    }
-    return true;
+  static String bodyHashKey(DKIMSignOptions ops) {
+    return ops.getSignAlgo().hashAlgorithm() + "/" + ops.getBodyCanonAlgo().algoName() + "/" + ops.getBodyLimit();
   }
 
-  private Future<Boolean> walkBoundaryStartAndHeadersFuture(MessageDigest md, String boundaryStart, EncodedPart part, AtomicInteger written) {
-    Promise<Boolean> promise = Promise.promise();
-    try {
-      StringBuilder sb = new StringBuilder();
-      sb.append(boundaryStart);
-      part.headers().forEach(entry -> sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n"));
-      sb.append("\r\n");
-      promise.complete(digest(md, sb.toString().getBytes(), written));
-    } catch (Exception e) {
-      promise.fail(e);
-    }
-    return promise.future();
+  /**
+   * Computes the body hash of the message.
+   *
+   * @param context the Vert.x Context to read the attachment streams
+   * @param encodedMessage The Encoded Message to be ready to sent to the wire
+   * @return The Future with the base64 encoded body hash as result
+   */
+  public Future<String> bodyHash(Context context, EncodedPart encodedMessage) {
+    return bodyHashes(context, encodedMessage, Collections.singletonList(this), executor)
+      .map(bhs -> bhs.get(bodyHashKey()));
   }
 
-  private void walkThroughMultiPart(Context context, MessageDigest md, EncodedPart multiPart, int index,
-                                    AtomicInteger written, Promise<Void> promise) {
-    String boundaryStart = "--" + multiPart.boundary() + "\r\n";
-    String boundaryEnd = "--" + multiPart.boundary() + "--";
-    if (index < multiPart.parts().size()) {
-      EncodedPart part = multiPart.parts().get(index);
-
-      Promise<Void> nextPartPromise = Promise.promise();
-      nextPartPromise.future().onComplete(r -> {
-        if (r.succeeded()) {
-          walkThroughMultiPart(context, md, multiPart, index + 1, written, promise);
-        } else {
-          promise.fail(r.cause());
-        }
-      });
-      // boundary and header, then body
-      walkBoundaryStartAndHeadersFuture(md, boundaryStart, part, written).onComplete(r -> {
-        if (r.succeeded()) {
-          if (r.result()) {
-            if (part.parts() != null && part.parts().size() > 0) {
-              // part is a multipart as well
-              walkThroughMultiPart(context, md, part, 0, written, nextPartPromise);
-            } else {
-              // walk through part body
-              if (part.body() != null) {
-                String canonicBody = dkimMailBody(part.body());
-                digest(md, canonicBody.getBytes(), written);
-                nextPartPromise.complete();
-              } else {
-                ReadStream<Buffer> dkimAttachStream = part.dkimBodyStream(context);
-                if (dkimAttachStream != null) {
-                  walkThroughAttachStream(md, dkimAttachStream, written, nextPartPromise);
-                } else {
-                  nextPartPromise.fail("No data and stream found.");
-                }
-              }
-            }
-          } else {
-            promise.complete();
-          }
-        } else {
-          promise.fail(r.cause());
-        }
-      });
-    } else {
-      // after last part has been walked through
-      digest(md, (boundaryEnd + "\r\n").getBytes(), written);
-      promise.complete();
-    }
+  /**
+   * Computes the body hashes of the message for a number of signers in one walk through the message, the attachment
+   * streams are read once for all signers.
+   *
+   * @param context the Vert.x Context to read the attachment streams
+   * @param encodedMessage The Encoded Message to be ready to sent to the wire
+   * @param signers the signers
+   * @return The Future with the base64 encoded body hashes by {@link #bodyHashKey()}
+   */
+  public static Future<Map<String, String>> bodyHashes(Context context, EncodedPart encodedMessage,
+                                                       Collection<DKIMSigner> signers) {
+    return bodyHashes(context, encodedMessage, signers, null);
   }
 
-  // https://tools.ietf.org/html/rfc6376#section-3.7
-  private Future<String> bodyHashing(Context context, EncodedPart encodedMessage) {
-    Promise<String> bodyHashPromise = Promise.promise();
+  /**
+   * Computes the body hashes of the message for a number of signers in one walk through the message, the digests are
+   * updated on a worker pool.
+   *
+   * @param context the Vert.x Context to read the attachment streams
+   * @param encodedMessage The Encoded Message to be ready to sent to the wire
+   * @param signers the signers
+   * @param executor the worker pool to update the digests or null to update them on the context
+   * @return The Future with the base64 encoded body hashes by {@link #bodyHashKey()}
+   */
+  public static Future<Map<String, String>> bodyHashes(Context context, EncodedPart encodedMessage,
+                                                       Collection<DKIMSigner> signers, WorkerExecutor executor) {
     try {
-      final MessageDigest md = MessageDigest.getInstance(dkimSignOptions.getSignAlgo().hashAlgorithm());
-      if (encodedMessage.parts() != null && encodedMessage.parts().size() > 0) {
-        Promise<Void> multiPartWalkThrough = Promise.promise();
-        multiPartWalkThrough.future().onComplete(r -> {
-          if (r.succeeded()) {
-            try {
-              // MD has been updated through reading the whole multipart message.
-              String bh = Base64.getEncoder().encodeToString(md.digest());
-              bodyHashPromise.complete(bh);
-            } catch (Exception e) {
-              bodyHashPromise.fail(e);
-            }
-          } else {
-            bodyHashPromise.fail(r.cause());
-          }
-        });
-        walkThroughMultiPart(context, md, encodedMessage, 0, new AtomicInteger(), multiPartWalkThrough);
-      } else {
-        String canonicBody = dkimMailBody(encodedMessage.body());
-        digest(md, canonicBody.getBytes(), new AtomicInteger());
-        String bh = Base64.getEncoder().encodeToString(md.digest());
-        bodyHashPromise.complete(bh);
-      }
+      final List<DKIMSignOptions> signOptions = signers.stream().map(s -> s.dkimSignOptions).collect(Collectors.toList());
+      return new DKIMBodyHasher(signOptions, executor).hash(context, encodedMessage);
     } catch (Exception e) {
-      bodyHashPromise.fail(e);
+      return Future.failedFuture(e);
     }
-    return bodyHashPromise.future();
   }
 
   private StringBuilder headersToSign(EncodedPart encodedMessage) {
@@ -432,15 +370,13 @@ public class DKIMSigner {
 
   // https://tools.ietf.org/html/rfc6376#section-2.11
   private static String dkimQuotedPrintable(String str) {
-    String dkimStr = Utils.encodeQP(str);
-    dkimStr = dkimStr.replaceAll(";", "=3B");
-    dkimStr = dkimStr.replaceAll(" ", "=20");
-    return dkimStr;
+    // ';' and ' ' are encoded as well
+    return Utils.encodeQP(str, "; ");
   }
 
   // https://tools.ietf.org/html/rfc6376#page-25
   private String dkimQuotedPrintableCopiedHeader(String value) {
-    return dkimQuotedPrintable(value).replaceAll("\\|", "=7C");
+    return Utils.encodeQP(value, "; |");
   }
 
   /**
@@ -462,22 +398,39 @@ public class DKIMSigner {
   }
 
   String dkimMailBody(String mailBody) {
-    Scanner scanner = new Scanner(mailBody).useDelimiter(DELIMITER);
-    StringBuilder sb = new StringBuilder();
-    while (scanner.hasNext()) {
-      sb.append(canonicBodyLine(scanner.nextLine()));
-      sb.append("\r\n");
-    }
-    return sb.toString().replaceFirst("[\r\n]*$", "\r\n");
+    return dkimMailBody(mailBody, this.dkimSignOptions.getBodyCanonAlgo());
+  }
+
+  static String dkimMailBody(String mailBody, CanonicalizationAlgorithm canon) {
+    final ByteArrayOutputStream canonicBody = new ByteArrayOutputStream(mailBody.length() + 2);
+    new BodyCanonicalizer(canon).canonicalize(mailBody, (bytes, length) -> {
+      canonicBody.write(bytes, 0, length);
+      return true;
+    });
+    return new String(canonicBody.toByteArray(), StandardCharsets.UTF_8);
   }
 
   // this is shared by header and body for each line's canonicalization.
-  private String canonicalLine(String line, CanonicalizationAlgorithm canon) {
-    if (CanonicalizationAlgorithm.RELAXED == canon) {
-      line = line.replaceAll("[\r\n\t ]+", " ");
-      line = line.replaceAll("[\r\n\t ]+$", "");
+  // the relaxed algorithm reduces each whitespace run to one space and removes the whitespace at the end.
+  private static String canonicalLine(String line, CanonicalizationAlgorithm canon) {
+    if (CanonicalizationAlgorithm.RELAXED != canon) {
+      return line;
     }
-    return line;
+    final StringBuilder sb = new StringBuilder(line.length());
+    boolean space = false;
+    for (int i = 0; i < line.length(); i++) {
+      final char c = line.charAt(i);
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+        space = true;
+      } else {
+        if (space) {
+          sb.append(' ');
+          space = false;
+        }
+        sb.append(c);
+      }
+    }
+    return sb.toString();
   }
 
   String canonicBodyLine(String line) {
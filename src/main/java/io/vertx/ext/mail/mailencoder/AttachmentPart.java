@@ -16,6 +16,7 @@
 
 package io.vertx.ext.mail.mailencoder;
 
+import io.netty.buffer.Unpooled;
 import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.*;
 import io.vertx.core.buffer.Buffer;
@@ -27,6 +28,11 @@ import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.mail.MailAttachment;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -40,11 +46,20 @@ class AttachmentPart extends EncodedPart {
   private String cachedFilePath;
 
   private final MailAttachment attachment;
+  // the data encoded by the attachment cache
+  private final Buffer encodedData;
+  // the file of the attachment mapped into memory
+  private final Buffer fileData;
 
   AttachmentPart(MailAttachment attachment) {
+    this(attachment, null);
+  }
+
+  AttachmentPart(MailAttachment attachment, EncodedAttachmentCache cache) {
     this.attachment = attachment;
-    if (this.attachment.getData() == null && this.attachment.getStream() == null) {
-      throw new IllegalArgumentException("Either data or stream of the attachment cannot be null");
+    if (this.attachment.getData() == null && this.attachment.getStream() == null
+      && this.attachment.getFilePath() == null) {
+      throw new IllegalArgumentException("Either data, stream or file path of the attachment cannot be null");
     }
     if (this.attachment.getStream() != null && this.attachment.getSize() < 0) {
       log.warn("Size of the attachment should be specified when using stream");
@@ -85,13 +100,67 @@ class AttachmentPart extends EncodedPart {
       headers.addAll(attachment.getHeaders());
     }
 
-    if (attachment.getData() != null) {
-      part = Utils.base64(attachment.getData().getBytes());
+    if (attachment.getData() == null && attachment.getStream() == null) {
+      fileData = mapFile(attachment.getFilePath());
+    } else {
+      fileData = null;
+    }
+    if (data() != null && data().length() == 0) {
+      part = "";
+    }
+    if (cache != null && encodeData() && attachment.getData() != null) {
+      encodedData = cache.encoded(attachment);
+    } else {
+      encodedData = null;
+    }
+  }
+
+  // this blocks, the mail client encodes mails with file attachments on a worker thread.
+  // the pages are loaded here so that reading the mapping while the mail is sent does not fault them in.
+  // the mapping stays valid when the channel is closed, it is released when the buffer is garbage collected
+  private static Buffer mapFile(String filePath) {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      // the encoded data is larger than the file and its size has to fit into an int as well
+      try {
+        Utils.base64Size(size);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("The file of the attachment is too large: " + filePath, e);
+      }
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      mapped.load();
+      return Buffer.buffer(Unpooled.wrappedBuffer(mapped));
+    } catch (IOException e) {
+      throw new VertxException("Cannot map the file of the attachment: " + filePath, e);
     }
   }
 
+  // the data in memory or the mapped file
+  private Buffer data() {
+    return attachment.getData() != null ? attachment.getData() : fileData;
+  }
+
+  // data in memory is encoded when it is written, see bodyStream()
+  private boolean encodeData() {
+    return part == null && data() != null;
+  }
+
+  @Override
+  String encodedBody() {
+    if (encodeData()) {
+      return Utils.base64(data().getBytes());
+    }
+    return super.encodedBody();
+  }
+
   @Override
   public synchronized ReadStream<Buffer> bodyStream(Context context) {
+    if (encodedData != null) {
+      return new Base64ReadStream(context, encodedData, true);
+    }
+    if (encodeData()) {
+      return new Base64ReadStream(context, data());
+    }
     ReadStream<Buffer> attachStream = this.attachment.getStream();
     if (attachStream == null) {
       return null;
@@ -101,6 +170,13 @@ class AttachmentPart extends EncodedPart {
 
   @Override
   public synchronized ReadStream<Buffer> dkimBodyStream(Context context) {
+    if (encodedData != null) {
+      return new Base64ReadStream(context, encodedData, true);
+    }
+    if (encodeData()) {
+      // the data can be read again, no need to cache it
+      return new Base64ReadStream(context, data());
+    }
     ReadStream<Buffer> attachStream = this.attachment.getStream();
     if (attachStream == null) {
       return null;
@@ -109,11 +185,12 @@ class AttachmentPart extends EncodedPart {
   }
 
   @Override
-  public int size() {
-    if (attachment.getData() == null) {
-      return attachment.getSize() < 0 ? 0 : (attachment.getSize() / 3) * 4;
+  int bodySize() {
+    if (data() != null) {
+      // empty data is sent as an empty line
+      return Math.max(2, Utils.base64Size(data().length()));
     }
-    return super.size();
+    return attachment.getSize() < 0 ? 0 : Utils.base64Size(attachment.getSize());
   }
 
   // what we need: strings line by line with CRLF as line terminator
@@ -128,24 +205,23 @@ class AttachmentPart extends EncodedPart {
 
     private final boolean cacheInFile;
     private final String cachedFilePath;
+    // completes when the last chunk has been written to the cached file
+    private Future<AsyncFile> cachedFileWritten;
     private AsyncFile cachedFile;
     private static final String cacheFilePrefix = "_vertx_mail_attach_";
     private static final String cachFileSuffix = ".data";
 
-    // 57 / 3 * 4 = 76, plus CRLF is 78, which is the email line length limit.
-    // see: https://tools.ietf.org/html/rfc5322#section-2.1.1
-    private final int size = 57;
-    private Buffer streamBuffer;
+    private final Base64LineEncoder encoder = new Base64LineEncoder();
     private Handler<Buffer> handler;
     private Handler<Void> endHandler;
-    private boolean caching;
+    // the number of chunks that are being cached
+    private int caching;
     private final AtomicBoolean streamEnded = new AtomicBoolean();
 
     private BodyReadStream(Context context, ReadStream<Buffer> stream, boolean tryReset) {
       Objects.requireNonNull(stream, "ReadStream cannot be null");
       this.stream = stream;
       this.context = context;
-      this.streamBuffer = Buffer.buffer();
       if (tryReset) {
         // cache
         if (CACHE_IN_FILE) {
@@ -189,20 +265,11 @@ class AttachmentPart extends EncodedPart {
           handleEventInContext(this.exceptionHandler, new IllegalStateException("Stream has been closed, no more reading."));
           return;
         }
-        Buffer buffer = streamBuffer.appendBuffer(b);
-        Buffer bufferToSent = Buffer.buffer();
-        int start = 0;
-        while(start + size < buffer.length()) {
-          final String theLine = Utils.base64(buffer.getBytes(start, start + size));
-          bufferToSent.appendBuffer(Buffer.buffer(theLine + "\r\n"));
-          start += size;
-        }
-        streamBuffer = buffer.getBuffer(start, buffer.length());
-        handleEventInContext(this.handler, bufferToSent);
+        handleEventInContext(this.handler, encoder.encode(b));
         if (cacheInMemory || cacheInFile) {
           cacheBuffer(b).onComplete(r -> {
             synchronized (BodyReadStream.this) {
-              caching = false;
+              caching--;
               if (r.failed()) {
                 handleEventInContext(this.exceptionHandler, r.cause());
               }
@@ -216,33 +283,26 @@ class AttachmentPart extends EncodedPart {
 
     // when this method is called, either cacheInMemory or cacheInFile is true
     private synchronized Future<Void> cacheBuffer(Buffer buffer) {
-      caching = true;
-      Promise<Void> promise = Promise.promise();
+      caching++;
       if (cacheInMemory) {
         cachedBuffer.appendBuffer(buffer);
-        promise.complete();
-      } else {
-        if (cachedFile == null) {
-          context.owner().fileSystem().open(cachedFilePath, new OpenOptions().setAppend(true))
-            .onComplete(c -> context.runOnContext(h -> {
-              if (c.succeeded()) {
-                synchronized (BodyReadStream.this) {
-                  cachedFile = c.result();
-                  cachedFile.write(buffer, promise);
-                }
-              } else {
-                promise.fail(c.cause());
-              }
-            }));
-        } else {
-          cachedFile.write(buffer, promise);
-        }
+        return Future.succeededFuture();
       }
-      return promise.future();
+      if (cachedFileWritten == null) {
+        cachedFileWritten = context.owner().fileSystem().open(cachedFilePath, new OpenOptions().setAppend(true));
+      }
+      // each chunk is written after the previous one, the chunks arriving while the file is opened keep their order
+      cachedFileWritten = cachedFileWritten.compose(file -> file.write(buffer).map(file));
+      return cachedFileWritten.map(file -> {
+        synchronized (BodyReadStream.this) {
+          cachedFile = file;
+        }
+        return null;
+      });
     }
 
     private synchronized void checkEnd() {
-      if (streamEnded.get() && !caching) {
+      if (streamEnded.get() && caching == 0) {
         if (cacheInFile) {
           // cache in an AsyncFile
           AttachmentPart.this.attachment.setStream(cachedFile);
@@ -301,10 +361,9 @@ class AttachmentPart extends EncodedPart {
         if (!streamEnded.compareAndSet(false, true)) {
           return;
         }
-        if (streamBuffer.length() > 0 && this.handler != null) {
-          String theLine = Utils.base64(streamBuffer.getBytes());
-          Buffer buffer = Buffer.buffer(theLine + "\r\n");
-          handleEventInContext(this.handler, buffer);
+        final Buffer lastLine = encoder.finish();
+        if (lastLine.length() > 0 && this.handler != null) {
+          handleEventInContext(this.handler, lastLine);
         }
         checkEnd();
       });
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Encodes data arriving in pieces as base64 lines of 76 chars ending with CRLF.
+ * <p>
+ * Each call of {@link #encode(Buffer)} returns the complete lines in one Buffer and keeps the remaining 0-56 bytes
+ * for the next call, {@link #finish()} encodes the remaining bytes as the last line.
+ */
+class Base64LineEncoder {
+
+  // 57 / 3 * 4 = 76, plus CRLF is 78, which is the email line length limit.
+  // see: https://tools.ietf.org/html/rfc5322#section-2.1.1
+  static final int LINE_SIZE = 57;
+  static final int ENCODED_LINE_SIZE = 78;
+
+  private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+  private final byte[] remainder = new byte[LINE_SIZE];
+  private int remainderLength;
+  // a full line is encoded into this array before it is appended to the output
+  private final byte[] line = new byte[ENCODED_LINE_SIZE];
+
+  Base64LineEncoder() {
+    line[ENCODED_LINE_SIZE - 2] = '\r';
+    line[ENCODED_LINE_SIZE - 1] = '\n';
+  }
+
+  /**
+   * encode the complete lines of the data following the data of the previous calls
+   *
+   * @param data the next data
+   * @return the encoded lines, may be empty
+   */
+  Buffer encode(Buffer data) {
+    final int lines = (remainderLength + data.length()) / LINE_SIZE;
+    final Buffer encoded = Buffer.buffer(lines * ENCODED_LINE_SIZE);
+    int position = 0;
+    if (lines > 0 && remainderLength > 0) {
+      position = LINE_SIZE - remainderLength;
+      data.getBytes(0, position, remainder, remainderLength);
+      for (int i = 0; i < LINE_SIZE; i += 3) {
+        encodeGroup(remainder[i], remainder[i + 1], remainder[i + 2], i / 3 * 4);
+      }
+      encoded.appendBytes(line);
+      remainderLength = 0;
+    }
+    while (data.length() - position >= LINE_SIZE) {
+      for (int i = 0; i < LINE_SIZE; i += 3) {
+        encodeGroup(data.getByte(position + i), data.getByte(position + i + 1), data.getByte(position + i + 2), i / 3 * 4);
+      }
+      encoded.appendBytes(line);
+      position += LINE_SIZE;
+    }
+    data.getBytes(position, data.length(), remainder, remainderLength);
+    remainderLength += data.length() - position;
+    return encoded;
+  }
+
+  /**
+   * encode the remaining data as the last line
+   *
+   * @return the last line or an empty Buffer if there is no remaining data
+   */
+  Buffer finish() {
+    if (remainderLength == 0) {
+      return Buffer.buffer();
+    }
+    int length = 0;
+    for (int i = 0; i < remainderLength; i += 3) {
+      final int left = remainderLength - i;
+      encodeGroup(remainder[i], left > 1 ? remainder[i + 1] : 0, left > 2 ? remainder[i + 2] : 0, length);
+      if (left == 1) {
+        line[length + 2] = '=';
+      }
+      if (left <= 2) {
+        line[length + 3] = '=';
+      }
+      length += 4;
+    }
+    line[length++] = '\r';
+    line[length++] = '\n';
+    remainderLength = 0;
+    final Buffer lastLine = Buffer.buffer(length);
+    lastLine.appendBytes(line, 0, length);
+    return lastLine;
+  }
+
+  private void encodeGroup(byte b0, byte b1, byte b2, int offset) {
+    final int bits = (b0 & 0xff) << 16 | (b1 & 0xff) << 8 | (b2 & 0xff);
+    line[offset] = ALPHABET[bits >>> 18];
+    line[offset + 1] = ALPHABET[(bits >>> 12) & 0x3f];
+    line[offset + 2] = ALPHABET[(bits >>> 6) & 0x3f];
+    line[offset + 3] = ALPHABET[bits & 0x3f];
+  }
+
+}
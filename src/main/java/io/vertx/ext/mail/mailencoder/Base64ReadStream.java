@@ -0,0 +1,152 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.codegen.annotations.Nullable;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * ReadStream encoding data in memory as base64 lines of 76 chars ending with CRLF.
+ * <p>
+ * The data is encoded in chunks when they are requested, so the encoded data is never completely in memory. Data
+ * that has been encoded already, e.g. by the {@link EncodedAttachmentCache}, is emitted in chunks as it is.
+ */
+class Base64ReadStream implements ReadStream<Buffer> {
+
+  // 256 lines are about 20 KB of encoded data
+  static final int CHUNK_SIZE = Base64LineEncoder.LINE_SIZE * 256;
+  static final int ENCODED_CHUNK_SIZE = Base64LineEncoder.ENCODED_LINE_SIZE * 256;
+
+  private final Context context;
+  private final Buffer data;
+  // null if the data has been encoded already
+  private final Base64LineEncoder encoder;
+  private int position;
+  private long demand = Long.MAX_VALUE;
+  private boolean emitting;
+  private boolean ended;
+  private Handler<Buffer> handler;
+  private Handler<Void> endHandler;
+
+  Base64ReadStream(Context context, Buffer data) {
+    this(context, data, false);
+  }
+
+  Base64ReadStream(Context context, Buffer data, boolean encoded) {
+    this.context = context;
+    this.data = data;
+    this.encoder = encoded ? null : new Base64LineEncoder();
+  }
+
+  @Override
+  public synchronized Base64ReadStream exceptionHandler(@Nullable Handler<Throwable> handler) {
+    return this;
+  }
+
+  @Override
+  public synchronized Base64ReadStream handler(@Nullable Handler<Buffer> handler) {
+    this.handler = handler;
+    scheduleEmit();
+    return this;
+  }
+
+  @Override
+  public synchronized Base64ReadStream pause() {
+    demand = 0;
+    return this;
+  }
+
+  @Override
+  public synchronized Base64ReadStream resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public synchronized Base64ReadStream fetch(long amount) {
+    demand += amount;
+    if (demand < 0) {
+      demand = Long.MAX_VALUE;
+    }
+    scheduleEmit();
+    return this;
+  }
+
+  @Override
+  public synchronized Base64ReadStream endHandler(@Nullable Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    scheduleEmit();
+    return this;
+  }
+
+  private void scheduleEmit() {
+    context.runOnContext(v -> emit());
+  }
+
+  private void emit() {
+    Handler<Buffer> dataHandler;
+    Buffer chunk;
+    synchronized (this) {
+      if (emitting || ended || handler == null) {
+        return;
+      }
+      emitting = true;
+    }
+    while (true) {
+      synchronized (this) {
+        if (position >= data.length()) {
+          break;
+        }
+        if (demand == 0 || handler == null) {
+          emitting = false;
+          return;
+        }
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        if (encoder == null) {
+          final int end = Math.min(position + ENCODED_CHUNK_SIZE, data.length());
+          chunk = data.slice(position, end);
+          position = end;
+        } else {
+          final int end = Math.min(position + CHUNK_SIZE, data.length());
+          chunk = encoder.encode(data.slice(position, end));
+          if (end == data.length()) {
+            chunk.appendBuffer(encoder.finish());
+          }
+          position = end;
+        }
+        dataHandler = handler;
+      }
+      dataHandler.handle(chunk);
+    }
+    Handler<Void> theEndHandler;
+    synchronized (this) {
+      emitting = false;
+      if (endHandler == null) {
+        // ended when the end handler is set
+        return;
+      }
+      ended = true;
+      theEndHandler = endHandler;
+    }
+    theEndHandler.handle(null);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.mail.MailAttachment;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded LRU cache of base64 encoded attachment data, the encoded data is kept in direct memory.
+ * <p>
+ * The key of an attachment is its cache key or else the identity of its data buffer, the data is never hashed so a
+ * lookup costs nothing compared to the encoding. Attachments without cache key only share the encoded data when they
+ * use the same buffer instance, the buffer is referenced weakly so the cache does not keep it alive.
+ * <p>
+ * This is implementation detail class. It is not intended to be used outside of this mail client.
+ */
+public class EncodedAttachmentCache {
+
+  private final long maxSize;
+  private long size;
+  private final LinkedHashMap<Object, Buffer> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * create an attachment cache
+   *
+   * @param maxSize the max size in bytes of the encoded data in the cache
+   */
+  public EncodedAttachmentCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * get the encoded data of the attachment, the data is encoded and added to the cache if it is not there yet.
+   *
+   * @param attachment the attachment with data
+   * @return the data as base64 lines ending with CRLF or null if it is larger than the cache
+   */
+  Buffer encoded(MailAttachment attachment) {
+    final Buffer data = attachment.getData();
+    final int encodedSize = Utils.base64Size(data.length());
+    if (encodedSize > maxSize) {
+      return null;
+    }
+    final Object key = key(attachment);
+    synchronized (this) {
+      final Buffer encoded = cache.get(key);
+      if (encoded != null) {
+        return encoded;
+      }
+    }
+    final Buffer encoded = encode(data, encodedSize);
+    synchronized (this) {
+      final Buffer previous = cache.putIfAbsent(key, encoded);
+      if (previous != null) {
+        return previous;
+      }
+      size += encodedSize;
+      final Iterator<Map.Entry<Object, Buffer>> it = cache.entrySet().iterator();
+      while (size > maxSize) {
+        size -= it.next().getValue().length();
+        it.remove();
+      }
+    }
+    return encoded;
+  }
+
+  /**
+   * @return the size of the encoded data in the cache
+   */
+  synchronized long size() {
+    return size;
+  }
+
+  private static Object key(MailAttachment attachment) {
+    if (attachment.getCacheKey() != null) {
+      return attachment.getCacheKey();
+    }
+    return new DataKey(attachment.getData());
+  }
+
+  /**
+   * the identity of a data buffer, the entry of a garbage collected buffer is never found again and is removed
+   * like the other least recently used entries
+   */
+  private static final class DataKey {
+
+    private final WeakReference<Buffer> data;
+    private final int hash;
+
+    DataKey(Buffer data) {
+      this.data = new WeakReference<>(data);
+      this.hash = System.identityHashCode(data);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof DataKey)) {
+        return false;
+      }
+      final Buffer buffer = data.get();
+      return buffer != null && buffer == ((DataKey) o).data.get();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static Buffer encode(Buffer data, int encodedSize) {
+    final ByteBuffer encoded = ByteBuffer.allocateDirect(encodedSize);
+    final Base64LineEncoder encoder = new Base64LineEncoder();
+    for (int position = 0; position < data.length(); position += Base64ReadStream.CHUNK_SIZE) {
+      final int end = Math.min(position + Base64ReadStream.CHUNK_SIZE, data.length());
+      encoded.put(encoder.encode(data.slice(position, end)).getByteBuf().nioBuffer());
+    }
+    encoded.put(encoder.finish().getByteBuf().nioBuffer());
+    encoded.flip();
+    return Buffer.buffer(Unpooled.wrappedBuffer(encoded));
+  }
+
+}
@@ -22,6 +22,7 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.core.streams.ReadStream;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This is implementation detail class. It is not intended to be used outside of this mail client.
@@ -31,15 +32,17 @@ import java.util.List;
 public abstract class EncodedPart {
   MultiMap headers;
   String part;
+  // the size of the body, it is computed the first time it is needed
+  private int bodySize = -1;
 
   String asString() {
     StringBuilder sb = new StringBuilder();
     headers().forEach(header -> {
       sb.append(header.getKey()).append(": ").append(header.getValue()).append("\n");
     });
-    if (body() != null) {
+    if (encodedBody() != null) {
       sb.append("\n");
-      sb.append(body());
+      sb.append(encodedBody());
     }
     return sb.toString();
   }
@@ -52,8 +55,39 @@ public abstract class EncodedPart {
     return part;
   }
 
+  /**
+   * the body as String, for parts that encode their body when it is written this encodes the complete body
+   *
+   * @return the encoded body
+   */
+  String encodedBody() {
+    return body();
+  }
+
+  /**
+   * the size in bytes of the part as it is sent in the mail data, this is the headers, the empty line and the body
+   * with CRLF line ends, not counting the dots added by dot-stuffing.
+   *
+   * @return the size of the part
+   */
   public int size() {
-    return asString().length();
+    if (bodySize < 0) {
+      bodySize = bodySize();
+    }
+    return headersSize() + bodySize;
+  }
+
+  private int headersSize() {
+    // the empty line after the headers
+    int size = 2;
+    for (Map.Entry<String, String> header : headers()) {
+      size += Utils.utf8Length(header.getKey()) + Utils.utf8Length(header.getValue()) + 4;
+    }
+    return size;
+  }
+
+  int bodySize() {
+    return body() == null ? 0 : Utils.bodySize(body());
   }
 
   public ReadStream<Buffer> bodyStream(Context context) {
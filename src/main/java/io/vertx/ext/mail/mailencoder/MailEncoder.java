@@ -17,6 +17,7 @@
 package io.vertx.ext.mail.mailencoder;
 
 import io.vertx.core.MultiMap;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mail.MailAttachment;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.MailMessage;
@@ -50,6 +51,10 @@ public class MailEncoder {
   private final String userAgent;
 
   private String messageID;
+  private EncodedAttachmentCache attachmentCache;
+  // the precompiled parts of the message body, null if the message is encoded completely
+  private final MailTemplate template;
+  private final JsonObject values;
 
   /**
    * create a MailEncoder for the message
@@ -75,9 +80,35 @@ public class MailEncoder {
    * @param userAgent the Mail User Agent name used to generate the boundary and Message-ID
    */
   public MailEncoder(MailMessage message, String hostname, String userAgent) {
+    this(message, hostname, userAgent, null, null);
+  }
+
+  /**
+   * create a MailEncoder for a message of a template, the body parts are rendered by the template
+   *
+   * @param message the message with the headers and recipients of this mail
+   * @param hostname the hostname to be used in message-id or null to get hostname from OS network config
+   * @param userAgent the Mail User Agent name used to generate the boundary and Message-ID
+   * @param template the template of the body parts
+   * @param values the values of the placeholders in the body parts
+   */
+  MailEncoder(MailMessage message, String hostname, String userAgent, MailTemplate template, JsonObject values) {
     this.message = message;
     this.hostname = hostname;
     this.userAgent = userAgent == null ? MailConfig.DEFAULT_USER_AGENT : userAgent;
+    this.template = template;
+    this.values = values;
+  }
+
+  /**
+   * set the cache used to look up the encoded data of the attachments
+   *
+   * @param attachmentCache the attachment cache or null for no cache
+   * @return this to be able to use the object fluently
+   */
+  public MailEncoder setAttachmentCache(EncodedAttachmentCache attachmentCache) {
+    this.attachmentCache = attachmentCache;
+    return this;
   }
 
   /**
@@ -90,32 +121,53 @@ public class MailEncoder {
   }
 
   public EncodedPart encodeMail() {
+    if (template != null) {
+      return encodeMail(template.textPart(values), template.htmlPart(values), template.inlineParts(),
+        template.attachmentParts());
+    }
+    return encodeMail(
+      message.getText() == null ? null : new TextPart(message.getText(), "plain"),
+      message.getHtml() == null ? null : new TextPart(message.getHtml(), "html"),
+      attachmentParts(message.getInlineAttachment()),
+      attachmentParts(message.getAttachment()));
+  }
+
+  /**
+   * build the MIME tree of the message from the encoded parts
+   *
+   * @param textPart the text part or null
+   * @param htmlPart the html part or null
+   * @param inlineParts the parts of the inline attachments or null
+   * @param attachmentParts the parts of the attachments or null
+   * @return the complete message
+   */
+  private EncodedPart encodeMail(EncodedPart textPart, EncodedPart htmlPart, List<EncodedPart> inlineParts,
+                                 List<EncodedPart> attachmentParts) {
     EncodedPart completeMessage;
     EncodedPart mainPart;
 
-    String text = message.getText();
-    String html = message.getHtml();
+    if (htmlPart != null && inlineParts != null) {
+      List<EncodedPart> parts = new ArrayList<>();
+      parts.add(htmlPart);
+      parts.addAll(inlineParts);
+      htmlPart = new MultiPart(parts, "related", this.userAgent);
+    }
 
-    if (text != null && html != null) {
-      mainPart = new MultiPart(Arrays.asList(new TextPart(text, "plain"), htmlPart()), "alternative", this.userAgent);
-    } else if (text != null) {
-      mainPart = new TextPart(text, "plain");
-    } else if (html != null) {
-      mainPart = htmlPart();
+    if (textPart != null && htmlPart != null) {
+      mainPart = new MultiPart(Arrays.asList(textPart, htmlPart), "alternative", this.userAgent);
+    } else if (textPart != null) {
+      mainPart = textPart;
     } else {
-      // message with only attachments
-      mainPart = null;
+      // null for a message with only attachments
+      mainPart = htmlPart;
     }
 
-    List<MailAttachment> attachments = message.getAttachment();
-    if (attachments != null && attachments.size() > 0) {
+    if (attachmentParts != null && attachmentParts.size() > 0) {
       List<EncodedPart> parts = new ArrayList<>();
       if (mainPart != null) {
         parts.add(mainPart);
       }
-      for (MailAttachment a : attachments) {
-        parts.add(new AttachmentPart(a));
-      }
+      parts.addAll(attachmentParts);
       completeMessage = new MultiPart(parts, "mixed", this.userAgent);
     } else {
       completeMessage = mainPart;
@@ -131,22 +183,15 @@ public class MailEncoder {
     return completeMessage;
   }
 
-  /**
-   * @return
-   */
-  private EncodedPart htmlPart() {
-    EncodedPart mainPart;
-    if (message.getInlineAttachment() != null) {
-      List<EncodedPart> parts = new ArrayList<>();
-      parts.add(new TextPart(message.getHtml(), "html"));
-      for (MailAttachment a : message.getInlineAttachment()) {
-        parts.add(new AttachmentPart(a));
-      }
-      mainPart = new MultiPart(parts, "related", this.userAgent);
-    } else {
-      mainPart = new TextPart(message.getHtml(), "html");
+  private List<EncodedPart> attachmentParts(List<MailAttachment> attachments) {
+    if (attachments == null) {
+      return null;
+    }
+    List<EncodedPart> parts = new ArrayList<>();
+    for (MailAttachment a : attachments) {
+      parts.add(new AttachmentPart(a, attachmentCache));
     }
-    return mainPart;
+    return parts;
   }
 
   /**
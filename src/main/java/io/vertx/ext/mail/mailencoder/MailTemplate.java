@@ -0,0 +1,259 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mail.MailAttachment;
+import io.vertx.ext.mail.MailMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a MailMessage compiled once to send it to many recipients, the subject, the To addresses, the text and the html
+ * may contain placeholders like {@code ${name}} that are replaced by the values of each mail.
+ * <p>
+ * The text and html are split into lines, the lines without placeholders are encoded once and only the lines with
+ * placeholders are encoded for each mail. The attachments are encoded once as well and their parts are shared by
+ * all mails, so the attachments must have data, a stream can only be sent once.
+ * <p>
+ * This is implementation detail class. It is not intended to be used outside of this mail client.
+ */
+public class MailTemplate {
+
+  private final MailMessage template;
+  private final String hostname;
+  private final Placeholders subject;
+  private final List<Placeholders> to;
+  private final Body text;
+  private final Body html;
+  private final List<EncodedPart> inlineParts;
+  private final List<EncodedPart> attachmentParts;
+
+  /**
+   * compile the template
+   *
+   * @param template the message with placeholders
+   * @param hostname the hostname to be used in message-id or null to get hostname from OS network config
+   * @param attachmentCache the cache used to look up the encoded data of the attachments or null to encode them
+   *                        once for this template
+   */
+  public MailTemplate(MailMessage template, String hostname, EncodedAttachmentCache attachmentCache) {
+    this.template = template;
+    this.hostname = hostname;
+    this.subject = template.getSubject() == null ? null : new Placeholders(template.getSubject());
+    if (template.getTo() != null) {
+      to = new ArrayList<>();
+      template.getTo().forEach(address -> to.add(new Placeholders(address)));
+    } else {
+      to = null;
+    }
+    this.text = template.getText() == null ? null : new Body(template.getText(), "plain");
+    this.html = template.getHtml() == null ? null : new Body(template.getHtml(), "html");
+    final EncodedAttachmentCache cache = attachmentCache != null
+      ? attachmentCache : new EncodedAttachmentCache(Long.MAX_VALUE);
+    this.inlineParts = attachmentParts(template.getInlineAttachment(), cache);
+    this.attachmentParts = attachmentParts(template.getAttachment(), cache);
+  }
+
+  private static List<EncodedPart> attachmentParts(List<MailAttachment> attachments, EncodedAttachmentCache cache) {
+    if (attachments == null) {
+      return null;
+    }
+    List<EncodedPart> parts = new ArrayList<>();
+    for (MailAttachment a : attachments) {
+      if (a.getStream() != null) {
+        throw new IllegalArgumentException("the attachments of a template cannot be streams");
+      }
+      parts.add(new AttachmentPart(a, cache));
+    }
+    return Collections.unmodifiableList(parts);
+  }
+
+  /**
+   * create the message of a mail with the placeholders in the subject and the To addresses replaced, the message has
+   * no body, it is used for the headers and the envelope of the mail.
+   *
+   * @param values the values of the placeholders
+   * @return the message of the mail
+   */
+  public MailMessage message(JsonObject values) {
+    final MailMessage message = new MailMessage()
+      .setBounceAddress(template.getBounceAddress())
+      .setFrom(template.getFrom())
+      .setCc(template.getCc())
+      .setBcc(template.getBcc())
+      .setHeaders(template.getHeaders())
+      .setFixedHeaders(template.isFixedHeaders());
+    if (subject != null) {
+      message.setSubject(subject.replace(values));
+    }
+    if (to != null) {
+      List<String> addresses = new ArrayList<>(to.size());
+      to.forEach(address -> addresses.add(address.replace(values)));
+      message.setTo(addresses);
+    }
+    return message;
+  }
+
+  /**
+   * create the encoder of a mail
+   *
+   * @param message the message of the mail created by {@link #message(JsonObject)}
+   * @param values the values of the placeholders
+   * @return the encoder using the encoded parts of this template
+   */
+  public MailEncoder encoder(MailMessage message, JsonObject values) {
+    return new MailEncoder(message, hostname, null, this, values);
+  }
+
+  EncodedPart textPart(JsonObject values) {
+    return text == null ? null : text.part(values);
+  }
+
+  EncodedPart htmlPart(JsonObject values) {
+    return html == null ? null : html.part(values);
+  }
+
+  List<EncodedPart> inlineParts() {
+    return inlineParts;
+  }
+
+  List<EncodedPart> attachmentParts() {
+    return attachmentParts;
+  }
+
+  /**
+   * a String split at the placeholders
+   */
+  static class Placeholders {
+
+    // the text before each placeholder and after the last one, there is one more text than names
+    private final List<String> texts = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    Placeholders(String s) {
+      int start = 0;
+      int index;
+      while ((index = s.indexOf("${", start)) >= 0) {
+        final int end = s.indexOf('}', index + 2);
+        if (end < 0) {
+          break;
+        }
+        texts.add(s.substring(start, index));
+        names.add(s.substring(index + 2, end));
+        start = end + 1;
+      }
+      texts.add(s.substring(start));
+    }
+
+    boolean isEmpty() {
+      return names.isEmpty();
+    }
+
+    String replace(JsonObject values) {
+      if (names.isEmpty()) {
+        return texts.get(0);
+      }
+      final StringBuilder sb = new StringBuilder(texts.get(0));
+      for (int i = 0; i < names.size(); i++) {
+        final Object value = values == null ? null : values.getValue(names.get(i));
+        if (value == null) {
+          throw new IllegalArgumentException("no value for the placeholder " + names.get(i));
+        }
+        sb.append(value).append(texts.get(i + 1));
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * the lines of a text or html body, the lines without placeholders are joined in one block.
+   * <p>
+   * The quoted-printable encoding of a line does not depend on the other lines, so the encoded blocks can be joined
+   * with the lines encoded for each mail. Whether the body is encoded at all depends on the complete text, so the
+   * blocks keep their text as well.
+   */
+  private static class Body {
+
+    private final String mode;
+    // the text of each block, null for a line with placeholders
+    private final List<String> texts = new ArrayList<>();
+    // the text of each block encoded as quoted-printable, null for a line with placeholders
+    private final List<String> encodedTexts = new ArrayList<>();
+    // the placeholders of each line with placeholders, null for the other blocks
+    private final List<Placeholders> lines = new ArrayList<>();
+    private boolean mustEncode;
+
+    Body(String text, String mode) {
+      this.mode = mode;
+      StringBuilder block = null;
+      for (String line : text.split("\n", -1)) {
+        final Placeholders placeholders = new Placeholders(line);
+        if (placeholders.isEmpty()) {
+          if (block == null) {
+            block = new StringBuilder(line);
+          } else {
+            block.append('\n').append(line);
+          }
+        } else {
+          addBlock(block);
+          block = null;
+          texts.add(null);
+          encodedTexts.add(null);
+          lines.add(placeholders);
+        }
+      }
+      addBlock(block);
+    }
+
+    private void addBlock(StringBuilder block) {
+      if (block != null) {
+        final String s = block.toString();
+        texts.add(s);
+        encodedTexts.add(Utils.encodeQP(s));
+        lines.add(null);
+        mustEncode |= Utils.mustEncode(s);
+      }
+    }
+
+    EncodedPart part(JsonObject values) {
+      final String[] replaced = new String[lines.size()];
+      boolean quotedPrintable = mustEncode;
+      for (int i = 0; i < replaced.length; i++) {
+        if (lines.get(i) != null) {
+          replaced[i] = lines.get(i).replace(values);
+          quotedPrintable |= Utils.mustEncode(replaced[i]);
+        }
+      }
+      final StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < replaced.length; i++) {
+        if (i > 0) {
+          sb.append('\n');
+        }
+        if (replaced[i] == null) {
+          sb.append(quotedPrintable ? encodedTexts.get(i) : texts.get(i));
+        } else {
+          sb.append(quotedPrintable ? Utils.encodeQP(replaced[i]) : replaced[i]);
+        }
+      }
+      return new TextPart(mode, sb.toString(), quotedPrintable);
+    }
+  }
+
+}
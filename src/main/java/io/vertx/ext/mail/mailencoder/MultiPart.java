@@ -54,16 +54,17 @@ class MultiPart extends EncodedPart {
         sb.append("\n\n");
       }
     } else {
-      sb.append(part.body());
+      sb.append(part.encodedBody());
     }
     return sb.toString();
   }
 
   @Override
-  public int size() {
-    int size = 0;
+  int bodySize() {
+    // each part starts with --boundary CRLF, the last one is followed by --boundary-- CRLF
+    int size = boundary.length() + 6;
     for (EncodedPart part: parts) {
-      size += part.size();
+      size += boundary.length() + 4 + part.size();
     }
     return size;
   }
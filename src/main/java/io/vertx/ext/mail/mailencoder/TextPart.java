@@ -21,17 +21,27 @@ import io.vertx.core.MultiMap;
 class TextPart extends EncodedPart {
 
   public TextPart(String text, String mode) {
-    if (Utils.mustEncode(text)) {
+    this(mode, Utils.mustEncode(text) ? Utils.encodeQP(text) : text, Utils.mustEncode(text));
+  }
+
+  /**
+   * create a text part from a body that has been encoded already
+   *
+   * @param mode the subtype of the text, e.g. plain or html
+   * @param body the encoded body
+   * @param quotedPrintable if the body is encoded as quoted-printable, otherwise it is 7bit
+   */
+  TextPart(String mode, String body, boolean quotedPrintable) {
+    if (quotedPrintable) {
       headers = MultiMap.caseInsensitiveMultiMap();;
       headers.set("Content-Type", "text/" + mode + "; charset=utf-8");
       headers.set("Content-Transfer-Encoding", "quoted-printable");
-      part = Utils.encodeQP(text);
     } else {
       headers = MultiMap.caseInsensitiveMultiMap();;
       headers.set("Content-Type", "text/" + mode);
       headers.set("Content-Transfer-Encoding", "7bit");
-      part = text;
     }
+    part = body;
   }
 
 }
@@ -18,6 +18,7 @@ package io.vertx.ext.mail.mailencoder;
 
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
@@ -29,43 +30,63 @@ public class Utils {
   private Utils() {
   }
 
+  private static final byte[] HEX = {
+    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+  };
+
   public static String encodeQP(String text) {
-    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
-    StringBuilder sb = new StringBuilder();
+    return encodeQP(text, null);
+  }
+
+  /**
+   * encode the text as quoted-printable with soft line breaks after 76 chars.
+   * <p>
+   * The chars in alwaysEncode are encoded as well, but count as one char for the line length. This is used for the
+   * DKIM tag values which encode some more chars after the quoted-printable encoding.
+   *
+   * @param text the text to encode
+   * @param alwaysEncode the ASCII chars to encode as well or null
+   * @return the encoded text
+   */
+  public static String encodeQP(String text, String alwaysEncode) {
+    final byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+    byte[] encoded = new byte[utf8.length + (utf8.length >> 2) + 16];
+    int length = 0;
 
     int column = 0;
     for (int i = 0; i < utf8.length; i++) {
-      char ch = (char) utf8[i];
-      if (ch == '\n') {
-        sb.append(ch);
+      if (length + 5 > encoded.length) {
+        encoded = Arrays.copyOf(encoded, encoded.length * 2);
+      }
+      final int b = utf8[i] & 0xff;
+      if (b == '\n') {
+        encoded[length++] = '\n';
         column = 0;
       } else {
         boolean nextIsEOL = i == utf8.length - 1 || utf8[i + 1] == '\n';
-        String encChar;
-        if (mustEncode(ch) || nextIsEOL && ch == ' ') {
-          encChar = encodeChar(ch);
-        } else {
-          encChar = String.valueOf(ch);
+        boolean encode = mustEncode((char) b) || nextIsEOL && b == ' ';
+        int width = encode ? 3 : 1;
+        int newColumn = column + width;
+        if (newColumn > 75 && !(nextIsEOL && newColumn == 76)) {
+          encoded[length++] = '=';
+          encoded[length++] = '\n';
+          newColumn = width;
         }
-        int newColumn = column + encChar.length();
-        if (newColumn <= 75 || nextIsEOL && newColumn == 76) {
-          sb.append(encChar);
-          column = newColumn;
+        if (encode || alwaysEncode != null && alwaysEncode.indexOf(b) >= 0) {
+          encoded[length++] = '=';
+          encoded[length++] = HEX[b >> 4];
+          encoded[length++] = HEX[b & 0x0f];
         } else {
-          sb.append("=\n").append(encChar);
-          column = encChar.length();
+          encoded[length++] = (byte) b;
         }
+        column = newColumn;
       }
     }
-    return sb.toString();
+    return new String(encoded, 0, length, StandardCharsets.ISO_8859_1);
   }
 
   private static String encodeChar(char ch) {
-    if (ch < 16) {
-      return "=0" + Integer.toHexString(ch).toUpperCase(Locale.ENGLISH);
-    } else {
-      return '=' + Integer.toHexString(ch & 0xff).toUpperCase(Locale.ENGLISH);
-    }
+    return new String(new char[] { '=', (char) HEX[(ch >> 4) & 0x0f], (char) HEX[ch & 0x0f] });
   }
 
   /*
@@ -250,4 +271,63 @@ public class Utils {
     return Base64.getMimeEncoder(76, lf).encodeToString(bytes);
   }
 
+  /*
+   * number of bytes of the String encoded as UTF-8
+   */
+  static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      length += utf8Length(s.charAt(i));
+    }
+    return length;
+  }
+
+  // a surrogate pair is 4 bytes, 2 for each char
+  private static int utf8Length(char ch) {
+    if (ch < 0x80) {
+      return 1;
+    } else if (ch < 0x800 || Character.isSurrogate(ch)) {
+      return 2;
+    } else {
+      return 3;
+    }
+  }
+
+  /*
+   * number of bytes of a body as it is sent in the mail data: LF and CRLF are sent as CRLF, line breaks at the end
+   * are dropped and the body ends with one CRLF. Dots added by dot-stuffing are not counted (RFC 1870).
+   */
+  static int bodySize(String body) {
+    int end = body.length();
+    while (end > 0 && (body.charAt(end - 1) == '\n' || body.charAt(end - 1) == '\r')) {
+      end--;
+    }
+    if (end == 0) {
+      return body.isEmpty() ? 2 : 0;
+    }
+    int size = 2;
+    for (int i = 0; i < end; i++) {
+      final char ch = body.charAt(i);
+      if (ch == '\n') {
+        size += 2;
+      } else if (ch != '\r' || i + 1 == end || body.charAt(i + 1) != '\n') {
+        size += utf8Length(ch);
+      }
+    }
+    return size;
+  }
+
+  /*
+   * number of bytes of data encoded as base64 with lines of 76 chars ending with CRLF,
+   * data whose encoded size does not fit into an int (about 1.5 GB) is rejected
+   */
+  static int base64Size(long dataSize) {
+    final long lines = (dataSize + 56) / 57;
+    final long size = (dataSize + 2) / 3 * 4 + lines * 2;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("data of " + dataSize + " bytes is too large to be encoded as base64");
+    }
+    return (int) size;
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail;
+
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * test when a pooled connection is checked with RSET before it is used for the next mail
+ */
+@RunWith(VertxUnitRunner.class)
+public class ConnectionValidationTest extends SMTPTestDummy {
+
+  private static final String[] MAIL = {
+    "MAIL FROM:",
+    "250 2.1.0 Ok",
+    "RCPT TO:",
+    "250 2.1.5 Ok",
+    "DATA",
+    "354 End data with <CR><LF>.<CR><LF>",
+    "250 2.0.0 Ok: queued as ABCDDEF0123456789"
+  };
+
+  private void setDialogue(boolean reset) {
+    String[] dialogue = new String[3 + MAIL.length * 2 + (reset ? 2 : 0) + 2];
+    int i = 0;
+    dialogue[i++] = "220 example.com ESMTP";
+    dialogue[i++] = "EHLO";
+    dialogue[i++] = "250-example.com\n250 SIZE 1000000";
+    for (String line : MAIL) {
+      dialogue[i++] = line;
+    }
+    if (reset) {
+      dialogue[i++] = "RSET";
+      dialogue[i++] = "250 2.0.0 Ok";
+    }
+    for (String line : MAIL) {
+      dialogue[i++] = line;
+    }
+    dialogue[i++] = "QUIT";
+    dialogue[i] = "221 2.0.0 Bye";
+    smtpServer.setDialogue(dialogue);
+  }
+
+  private void sendTwoMails(TestContext testContext, MailConfig config) {
+    Async async = testContext.async();
+    MailClient mailClient = MailClient.create(vertx, config);
+    mailClient.sendMail(exampleMessage(), testContext.asyncAssertSuccess(result ->
+      mailClient.sendMail(exampleMessage(), testContext.asyncAssertSuccess(result2 -> {
+        mailClient.close();
+        async.complete();
+      }))));
+  }
+
+  @Test
+  public void testValidateAlways(TestContext testContext) {
+    setDialogue(true);
+    sendTwoMails(testContext, configNoSSL());
+  }
+
+  @Test
+  public void testValidateNever(TestContext testContext) {
+    setDialogue(false);
+    sendTwoMails(testContext, configNoSSL().setConnectionValidation(ConnectionValidation.NEVER));
+  }
+
+  @Test
+  public void testValidateIdleRecentlyUsed(TestContext testContext) {
+    setDialogue(false);
+    sendTwoMails(testContext, configNoSSL().setConnectionValidation(ConnectionValidation.IDLE)
+      .setValidationIdleThreshold(60000));
+  }
+
+  @Test
+  public void testValidateIdleThresholdExceeded(TestContext testContext) {
+    setDialogue(true);
+    sendTwoMails(testContext, configNoSSL().setConnectionValidation(ConnectionValidation.IDLE)
+      .setValidationIdleThreshold(0));
+  }
+
+}
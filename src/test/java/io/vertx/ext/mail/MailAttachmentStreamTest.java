@@ -18,6 +18,7 @@ package io.vertx.ext.mail;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.OpenOptions;
+import io.vertx.ext.mail.impl.TestMailClient;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.junit.Test;
@@ -27,6 +28,7 @@ import javax.mail.internet.MimeMultipart;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * test messages with a ReadStream specified
@@ -86,6 +88,87 @@ public class MailAttachmentStreamTest extends SMTPTestWiser {
     });
   }
 
+  @Test
+  public void mailWithManySmallAttachments(TestContext testContext) {
+    this.testContext = testContext;
+    String text = "This is a message with many small attachments";
+    MailMessage message = exampleMessage().setText(text);
+    List<MailAttachment> list = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      list.add(MailAttachment.create()
+        .setData(Buffer.buffer("attachment " + i))
+        .setName("file" + i + ".txt")
+        .setContentType("text/plain"));
+    }
+    message.setAttachment(list);
+    TestMailClient mailClient = new TestMailClient(vertx, configLogin().setMaxPoolSize(1));
+    AtomicInteger writes = new AtomicInteger();
+    mailClient.countSocketWrites(writes, testContext.asyncAssertSuccess(v -> testSuccess(mailClient, message, () -> {
+      final MimeMultipart multiPart = (MimeMultipart)wiser.getMessages().get(0).getMimeMessage().getContent();
+      testContext.assertEquals(201, multiPart.getCount());
+      testContext.assertEquals(text, TestUtils.conv2nl(TestUtils.inputStreamToString(multiPart.getBodyPart(0).getInputStream())));
+      for (int i = 0; i < 200; i++) {
+        testContext.assertEquals("attachment " + i, TestUtils.inputStreamToString(multiPart.getBodyPart(i + 1).getInputStream()));
+      }
+      // the lines of the small parts are collected into a few writes of the mail data
+      testContext.assertTrue(writes.get() < 20, "socket writes: " + writes.get());
+    })));
+  }
+
+  @Test
+  public void mailWithCachedAttachment(TestContext testContext) {
+    this.testContext = testContext;
+    Buffer image = vertx.fileSystem().readFileBlocking("logo-white-big.png");
+    MailClient mailClient = MailClient.create(vertx, configLogin().setAttachmentCacheSize(1000000));
+    // the mails share the data buffer, so it is encoded once
+    Buffer data = Buffer.buffer(image.getBytes());
+    List<MailMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      messages.add(exampleMessage().setText("message " + i).setAttachment(MailAttachment.create()
+        .setData(data)
+        .setName("logo-white-big.png")
+        .setContentType("image/png")));
+    }
+    mailClient.sendMails(messages, testContext.asyncAssertSuccess(results -> {
+      testContext.assertEquals(2, wiser.getMessages().size());
+      for (int i = 0; i < 2; i++) {
+        try {
+          final MimeMultipart multiPart = (MimeMultipart) wiser.getMessages().get(i).getMimeMessage().getContent();
+          testContext.assertTrue(Arrays.equals(image.getBytes(), TestUtils.inputStreamToBytes(multiPart.getBodyPart(1).getInputStream())));
+        } catch (Exception e) {
+          testContext.fail(e);
+        }
+      }
+      mailClient.close();
+    }));
+  }
+
+  @Test
+  public void mailWithFileAttachment(TestContext testContext) {
+    this.testContext = testContext;
+    String text = "This is a message with a file attachment";
+    MailMessage message = exampleMessage().setText(text);
+    Buffer image = vertx.fileSystem().readFileBlocking("logo-white-big.png");
+    MailAttachment attachment = MailAttachment.create()
+      .setContentType("image/png")
+      .setName("logo-white-big.png")
+      .setFilePath(getClass().getResource("/logo-white-big.png").getPath());
+    message.setAttachment(attachment);
+    testSuccess(mailClientLogin(), message, () -> {
+      final MimeMultipart multiPart = (MimeMultipart)wiser.getMessages().get(0).getMimeMessage().getContent();
+      testContext.assertEquals(2, multiPart.getCount());
+      testContext.assertTrue(Arrays.equals(image.getBytes(), TestUtils.inputStreamToBytes(multiPart.getBodyPart(1).getInputStream())));
+    });
+  }
+
+  @Test
+  public void mailWithMissingFileAttachment(TestContext testContext) {
+    this.testContext = testContext;
+    MailMessage message = exampleMessage().setText("This is a message with a missing file attachment");
+    message.setAttachment(MailAttachment.create().setFilePath("does-not-exist.png"));
+    testException(mailClientLogin(), message);
+  }
+
   @Test
   public void mailWithOneAttachmentStream(TestContext testContext) {
     this.testContext = testContext;
@@ -161,6 +161,24 @@ public class MailAttachmentTest {
     assertEquals("id@example.org", mailMessage.getContentId());
   }
 
+  @Test
+  public void testCacheKey() {
+    MailAttachment mailMessage = MailAttachment.create();
+    mailMessage.setCacheKey("logo");
+    assertEquals("logo", mailMessage.getCacheKey());
+    assertEquals("logo", MailAttachment.create(mailMessage.toJson()).getCacheKey());
+    assertEquals("logo", MailAttachment.create(mailMessage).getCacheKey());
+  }
+
+  @Test
+  public void testFilePath() {
+    MailAttachment mailMessage = MailAttachment.create();
+    mailMessage.setFilePath("/tmp/file.pdf");
+    assertEquals("/tmp/file.pdf", mailMessage.getFilePath());
+    assertEquals("/tmp/file.pdf", MailAttachment.create(mailMessage.toJson()).getFilePath());
+    assertEquals("/tmp/file.pdf", MailAttachment.create(mailMessage).getFilePath());
+  }
+
   @Test
   public void testHeaders() {
     MailAttachment mailMessage = MailAttachment.create();
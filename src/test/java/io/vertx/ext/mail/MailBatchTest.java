@@ -0,0 +1,329 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mail.impl.TestMailClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.subethamail.wiser.WiserMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * test sending a number of mails with one call
+ */
+@RunWith(VertxUnitRunner.class)
+public class MailBatchTest extends SMTPTestWiser {
+
+  private List<MailMessage> messages(int count) {
+    List<MailMessage> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(new MailMessage("from@example.com", "user" + i + "@example.com", "Subject " + i, "Message"));
+    }
+    return messages;
+  }
+
+  @Test
+  public void sendListTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(2));
+
+    mailClient.sendMails(messages(5), context.asyncAssertSuccess(results -> {
+      context.assertEquals(5, results.size());
+      for (int i = 0; i < 5; i++) {
+        context.assertEquals("user" + i + "@example.com", results.get(i).getRecipients().get(0));
+      }
+      context.assertEquals(5, wiser.getMessages().size());
+      context.assertTrue(mailClient.connCount() <= 2);
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void sendStreamTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(2));
+
+    mailClient.sendMails(new MessageStream(messages(10)), context.asyncAssertSuccess(results -> {
+      context.assertEquals(10, results.size());
+      context.assertEquals("user9@example.com", results.get(9).getRecipients().get(0));
+      context.assertEquals(10, wiser.getMessages().size());
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void sendTemplateTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(2));
+
+    MailMessage template = new MailMessage("from@example.com", "${email}", "Subject ${n}", "Message ${n}\nfor everyone");
+    List<JsonObject> values = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      values.add(new JsonObject().put("email", "user" + i + "@example.com").put("n", i));
+    }
+
+    mailClient.sendMails(template, values, context.asyncAssertSuccess(results -> {
+      context.assertEquals(3, results.size());
+      for (int i = 0; i < 3; i++) {
+        context.assertEquals("user" + i + "@example.com", results.get(i).getRecipients().get(0));
+      }
+      context.assertEquals(3, wiser.getMessages().size());
+      for (WiserMessage message : wiser.getMessages()) {
+        String n = message.getEnvelopeReceiver().substring(4, 5);
+        context.assertTrue(new String(message.getData()).contains("Subject: Subject " + n));
+        context.assertTrue(new String(message.getData()).contains("Message " + n + "\r\nfor everyone"));
+      }
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void sendTemplateWithFileAttachmentTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(2));
+
+    MailMessage template = new MailMessage("from@example.com", "${email}", "Subject", "Message");
+    template.setAttachment(MailAttachment.create().setName("log4j2-test.xml")
+      .setFilePath(getClass().getResource("/log4j2-test.xml").getPath()));
+    List<JsonObject> values = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      values.add(new JsonObject().put("email", "user" + i + "@example.com"));
+    }
+
+    mailClient.sendMails(template, values, context.asyncAssertSuccess(results -> {
+      context.assertEquals(3, results.size());
+      context.assertEquals(3, wiser.getMessages().size());
+      for (WiserMessage message : wiser.getMessages()) {
+        context.assertTrue(new String(message.getData()).contains("filename=\"log4j2-test.xml\""));
+      }
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void sendEmptyListTest(TestContext context) {
+    Async async = context.async();
+
+    MailClient mailClient = MailClient.create(vertx, configNoSSL());
+
+    mailClient.sendMails(new ArrayList<>(), context.asyncAssertSuccess(results -> {
+      context.assertTrue(results.isEmpty());
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void invalidMessageFailsAloneTest(TestContext context) {
+    Async async = context.async();
+
+    MailClient mailClient = MailClient.create(vertx, configNoSSL());
+
+    List<MailMessage> messages = messages(3);
+    messages.add(1, new MailMessage().setFrom("from@example.com"));
+
+    mailClient.sendMails(messages, context.asyncAssertSuccess(results -> {
+      context.assertEquals(4, results.size());
+      context.assertEquals("no recipient addresses are present", results.get(1).getCause().getMessage());
+      context.assertNull(results.get(0).getCause());
+      context.assertNull(results.get(2).getCause());
+      context.assertEquals("user2@example.com", results.get(3).getRecipients().get(0));
+      context.assertEquals(3, wiser.getMessages().size());
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void missingPlaceholderFailsAloneTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(2));
+
+    MailMessage template = new MailMessage("from@example.com", "${email}", "Subject", "Message for ${name}");
+    List<JsonObject> values = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      values.add(new JsonObject().put("email", "user" + i + "@example.com").put("name", "User " + i));
+    }
+    values.get(1).remove("name");
+
+    mailClient.sendMails(template, values, context.asyncAssertSuccess(results -> {
+      context.assertEquals(3, results.size());
+      context.assertNull(results.get(0).getCause());
+      context.assertEquals("no value for the placeholder name", results.get(1).getCause().getMessage());
+      context.assertNull(results.get(2).getCause());
+      context.assertEquals(2, wiser.getMessages().size());
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void noConnectionFailsBatchTest(TestContext context) {
+    Async async = context.async();
+
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setPort(1588));
+
+    mailClient.sendMails(messages(3), context.asyncAssertFailure(th -> {
+      context.assertEquals(0, wiser.getMessages().size());
+      mailClient.close();
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void busyPoolEndsLaneOnlyTest(TestContext context) {
+    Async async = context.async(2);
+
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setMaxPoolSize(2).setMaxWaitQueueSize(0));
+
+    vertx.runOnContext(v -> {
+      // takes one of the two connections, the second lane of the batch does not get one
+      mailClient.sendMail(exampleMessage(), context.asyncAssertSuccess(result -> async.countDown()));
+      mailClient.sendMails(messages(3), context.asyncAssertSuccess(results -> {
+        context.assertEquals(3, results.size());
+        for (int i = 0; i < 3; i++) {
+          context.assertNull(results.get(i).getCause());
+          context.assertEquals("user" + i + "@example.com", results.get(i).getRecipients().get(0));
+        }
+        async.countDown();
+      }));
+    });
+    async.handler(v -> {
+      context.assertEquals(4, wiser.getMessages().size());
+      mailClient.close();
+    });
+  }
+
+  @Test
+  public void sendFromTwoContextsTest(TestContext context) {
+    Async async = context.async(2);
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL().setMaxPoolSize(1));
+
+    // the contexts share the one connection of the pool
+    for (int i = 0; i < 2; i++) {
+      Context batchContext = vertx.getOrCreateContext();
+      batchContext.runOnContext(v -> mailClient.sendMails(messages(3), context.asyncAssertSuccess(results -> {
+        context.assertEquals(batchContext, Vertx.currentContext());
+        context.assertEquals(3, results.size());
+        for (int j = 0; j < 3; j++) {
+          context.assertNull(results.get(j).getCause());
+        }
+        async.countDown();
+      })));
+    }
+    async.handler(v -> {
+      context.assertEquals(6, wiser.getMessages().size());
+      context.assertTrue(mailClient.connCount() <= 1);
+      mailClient.close();
+    });
+  }
+
+  /**
+   * emits the messages when it is not paused
+   */
+  private class MessageStream implements ReadStream<MailMessage> {
+
+    private final Deque<MailMessage> pending;
+    private Handler<MailMessage> handler;
+    private Handler<Void> endHandler;
+    private long demand = Long.MAX_VALUE;
+    private boolean emitting;
+
+    MessageStream(List<MailMessage> messages) {
+      pending = new ArrayDeque<>(messages);
+    }
+
+    private void emit() {
+      if (emitting) {
+        return;
+      }
+      emitting = true;
+      while (demand > 0 && handler != null && !pending.isEmpty()) {
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        handler.handle(pending.poll());
+      }
+      emitting = false;
+      if (pending.isEmpty() && endHandler != null) {
+        Handler<Void> h = endHandler;
+        endHandler = null;
+        h.handle(null);
+      }
+    }
+
+    @Override
+    public ReadStream<MailMessage> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public ReadStream<MailMessage> handler(Handler<MailMessage> handler) {
+      this.handler = handler;
+      vertx.runOnContext(v -> emit());
+      return this;
+    }
+
+    @Override
+    public ReadStream<MailMessage> pause() {
+      demand = 0;
+      return this;
+    }
+
+    @Override
+    public ReadStream<MailMessage> resume() {
+      return fetch(Long.MAX_VALUE);
+    }
+
+    @Override
+    public ReadStream<MailMessage> fetch(long amount) {
+      demand = amount;
+      vertx.runOnContext(v -> emit());
+      return this;
+    }
+
+    @Override
+    public ReadStream<MailMessage> endHandler(Handler<Void> endHandler) {
+      this.endHandler = endHandler;
+      return this;
+    }
+  }
+
+}
@@ -23,6 +23,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -329,4 +330,134 @@ public class MailConfigTest {
     assertFalse(mailConfig.isPipelining());
   }
 
+  @Test
+  public void testPerContextPool() {
+    MailConfig mailConfig = new MailConfig();
+    assertFalse(mailConfig.isPerContextPool());
+    mailConfig.setPerContextPool(true);
+    assertTrue(mailConfig.isPerContextPool());
+    assertTrue(new MailConfig(mailConfig.toJson()).isPerContextPool());
+    assertTrue(new MailConfig(mailConfig).isPerContextPool());
+  }
+
+  @Test
+  public void testPoolLimits() {
+    MailConfig mailConfig = new MailConfig();
+    assertEquals(0, mailConfig.getPoolIdleTimeout());
+    assertEquals(TimeUnit.SECONDS, mailConfig.getPoolIdleTimeoutUnit());
+    assertEquals(0, mailConfig.getMaxLifetime());
+    assertEquals(TimeUnit.SECONDS, mailConfig.getMaxLifetimeUnit());
+    assertEquals(0, mailConfig.getMaxMailsPerConnection());
+    assertEquals(1000, mailConfig.getPoolCleanerPeriod());
+    mailConfig.setPoolIdleTimeout(500).setPoolIdleTimeoutUnit(TimeUnit.MILLISECONDS)
+      .setMaxLifetime(5).setMaxLifetimeUnit(TimeUnit.MINUTES)
+      .setMaxMailsPerConnection(100).setPoolCleanerPeriod(200);
+    MailConfig copy = new MailConfig(mailConfig.toJson());
+    assertEquals(500, copy.getPoolIdleTimeout());
+    assertEquals(TimeUnit.MILLISECONDS, copy.getPoolIdleTimeoutUnit());
+    assertEquals(5, copy.getMaxLifetime());
+    assertEquals(TimeUnit.MINUTES, copy.getMaxLifetimeUnit());
+    assertEquals(100, copy.getMaxMailsPerConnection());
+    assertEquals(200, copy.getPoolCleanerPeriod());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPoolIdleTimeoutNegative() {
+    new MailConfig().setPoolIdleTimeout(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPoolCleanerPeriodZero() {
+    new MailConfig().setPoolCleanerPeriod(0);
+  }
+
+  @Test
+  public void testConnectionValidation() {
+    MailConfig mailConfig = new MailConfig();
+    assertEquals(ConnectionValidation.ALWAYS, mailConfig.getConnectionValidation());
+    assertEquals(1000, mailConfig.getValidationIdleThreshold());
+    mailConfig.setConnectionValidation(ConnectionValidation.IDLE).setValidationIdleThreshold(200);
+    MailConfig copy = new MailConfig(mailConfig.toJson());
+    assertEquals(ConnectionValidation.IDLE, copy.getConnectionValidation());
+    assertEquals(200, copy.getValidationIdleThreshold());
+    copy = new MailConfig(new JsonObject().put("connectionValidation", "never"));
+    assertEquals(ConnectionValidation.NEVER, copy.getConnectionValidation());
+  }
+
+  @Test
+  public void testMinIdle() {
+    MailConfig mailConfig = new MailConfig();
+    assertEquals(0, mailConfig.getMinIdle());
+    mailConfig.setMinIdle(4);
+    assertEquals(4, new MailConfig(mailConfig.toJson()).getMinIdle());
+    assertEquals(4, new MailConfig(mailConfig).getMinIdle());
+  }
+
+  @Test
+  public void testWaitQueue() {
+    MailConfig mailConfig = new MailConfig();
+    assertEquals(-1, mailConfig.getMaxWaitQueueSize());
+    assertEquals(0, mailConfig.getConnectionAcquireTimeout());
+    mailConfig.setMaxWaitQueueSize(100).setConnectionAcquireTimeout(5000);
+    MailConfig copy = new MailConfig(mailConfig.toJson());
+    assertEquals(100, copy.getMaxWaitQueueSize());
+    assertEquals(5000, copy.getConnectionAcquireTimeout());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxWaitQueueSizeIllegal() {
+    new MailConfig().setMaxWaitQueueSize(-2);
+  }
+
+  @Test
+  public void testTransactionPipelining() {
+    MailConfig mailConfig = new MailConfig();
+    assertFalse(mailConfig.isTransactionPipelining());
+    mailConfig.setTransactionPipelining(true);
+    assertTrue(new MailConfig(mailConfig.toJson()).isTransactionPipelining());
+    assertTrue(new MailConfig(mailConfig).isTransactionPipelining());
+  }
+
+  @Test
+  public void testChunking() {
+    MailConfig mailConfig = new MailConfig();
+    assertFalse(mailConfig.isChunking());
+    mailConfig.setChunking(true);
+    assertTrue(new MailConfig(mailConfig.toJson()).isChunking());
+    assertTrue(new MailConfig(mailConfig).isChunking());
+  }
+
+  @Test
+  public void testAttachmentCacheSize() {
+    MailConfig mailConfig = new MailConfig();
+    assertEquals(0, mailConfig.getAttachmentCacheSize());
+    mailConfig.setAttachmentCacheSize(1000000);
+    assertEquals(1000000, new MailConfig(mailConfig.toJson()).getAttachmentCacheSize());
+    assertEquals(1000000, new MailConfig(mailConfig).getAttachmentCacheSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAttachmentCacheSizeIllegal() {
+    new MailConfig().setAttachmentCacheSize(-1);
+  }
+
+  @Test
+  public void testDkimWorkerPool() {
+    MailConfig mailConfig = new MailConfig();
+    assertNull(mailConfig.getDkimWorkerPoolName());
+    assertEquals(4, mailConfig.getDkimWorkerPoolSize());
+    mailConfig.setDkimWorkerPoolName("dkim").setDkimWorkerPoolSize(2);
+    MailConfig fromJson = new MailConfig(mailConfig.toJson());
+    assertEquals("dkim", fromJson.getDkimWorkerPoolName());
+    assertEquals(2, fromJson.getDkimWorkerPoolSize());
+    MailConfig copy = new MailConfig(mailConfig);
+    assertEquals("dkim", copy.getDkimWorkerPoolName());
+    assertEquals(2, copy.getDkimWorkerPoolSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDkimWorkerPoolSizeIllegal() {
+    new MailConfig().setDkimWorkerPoolSize(0);
+  }
+
 }
@@ -18,6 +18,7 @@ package io.vertx.ext.mail;
 
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.ext.mail.impl.TestMailClient;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -175,4 +176,21 @@ public class MailPoolTest extends SMTPTestWiser {
     });
   }
 
+  @Test
+  public void warmUpTest(TestContext context) {
+    Async async = context.async();
+
+    TestMailClient mailClient = new TestMailClient(vertx, configNoSSL());
+
+    mailClient.warmUp(3, context.asyncAssertSuccess(v -> {
+      context.assertEquals(3, mailClient.connCount());
+      mailClient.sendMail(exampleMessage(), context.asyncAssertSuccess(result -> {
+        // the mail was sent over one of the warm connections
+        context.assertEquals(3, mailClient.connCount());
+        mailClient.close();
+        async.complete();
+      }));
+    }));
+  }
+
 }
@@ -240,6 +240,104 @@ public class MailWithDKIMSignTest extends SMTPTestWiser {
     });
   }
 
+  @Test
+  public void testMailTwoSignersSameBodyHash(TestContext testContext) {
+    this.testContext = testContext;
+    Buffer img = vertx.fileSystem().readFileBlocking("logo-white-big.png");
+    MailAttachment attachment = MailAttachment.create().setName("logo-white-big.png").setData(img);
+    MailMessage message = exampleMessage().setText(TEXT_BODY).setAttachment(attachment);
+    DKIMSignOptions simple = new DKIMSignOptions(dkimOptionsBase)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.SIMPLE).setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED);
+    DKIMSignOptions relaxed = new DKIMSignOptions(dkimOptionsBase)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.RELAXED).setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED);
+    MailClient mailClient = MailClient.create(vertx, configLogin().setEnableDKIM(true)
+      .addDKIMSignOption(simple).addDKIMSignOption(relaxed));
+    testSuccess(mailClient, message, () -> {
+      Message jamesMessage = new Message(new ByteArrayInputStream(wiser.getMessages().get(0).getData()));
+      List<String> dkimHeaders = jamesMessage.getFields(DKIMSigner.DKIM_SIGNATURE_HEADER);
+      testContext.assertEquals(2, dkimHeaders.size());
+      MockPublicKeyRecordRetriever recordRetriever = new MockPublicKeyRecordRetriever();
+      recordRetriever.addRecord("lgao", "example.com", "v=DKIM1; k=rsa; p=" + pubKeyStr);
+      List<SignatureRecord> records = new DKIMVerifier(recordRetriever).verify(jamesMessage, jamesMessage.getBodyInputStream());
+      testContext.assertEquals(2, records.size());
+      testContext.assertTrue(Arrays.equals(records.get(0).getBodyHash(), records.get(1).getBodyHash()));
+    });
+  }
+
+  @Test
+  public void testMailTwoSignersDifferentBodyHash(TestContext testContext) {
+    this.testContext = testContext;
+    Buffer img = vertx.fileSystem().readFileBlocking("logo-white-big.png");
+    MailAttachment attachment = MailAttachment.create().setName("logo-white-big.png").setData(img);
+    MailMessage message = exampleMessage().setText(TEXT_BODY).setHtml(HTML_BODY).setAttachment(attachment);
+    DKIMSignOptions simple = new DKIMSignOptions(dkimOptionsBase)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.SIMPLE).setBodyCanonAlgo(CanonicalizationAlgorithm.SIMPLE);
+    DKIMSignOptions relaxed = new DKIMSignOptions(dkimOptionsBase).setBodyLimit(3000)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.RELAXED).setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED);
+    MailClient mailClient = MailClient.create(vertx, configLogin().setEnableDKIM(true)
+      .addDKIMSignOption(simple).addDKIMSignOption(relaxed));
+    testSuccess(mailClient, message, () -> {
+      Message jamesMessage = new Message(new ByteArrayInputStream(wiser.getMessages().get(0).getData()));
+      testContext.assertEquals(2, jamesMessage.getFields(DKIMSigner.DKIM_SIGNATURE_HEADER).size());
+      MockPublicKeyRecordRetriever recordRetriever = new MockPublicKeyRecordRetriever();
+      recordRetriever.addRecord("lgao", "example.com", "v=DKIM1; k=rsa; p=" + pubKeyStr);
+      List<SignatureRecord> records = new DKIMVerifier(recordRetriever).verify(jamesMessage, jamesMessage.getBodyInputStream());
+      testContext.assertEquals(2, records.size());
+      testContext.assertFalse(Arrays.equals(records.get(0).getBodyHash(), records.get(1).getBodyHash()));
+    });
+  }
+
+  @Test
+  public void testMailTwoSignersLargeAttachmentStreamOnWorkerPool(TestContext testContext) {
+    this.testContext = testContext;
+    // larger than the chunks hashed by one task
+    byte[] data = new byte[200 * 1024];
+    new Random(1).nextBytes(data);
+    String path = vertx.fileSystem().createTempFileBlocking("dkim", ".data");
+    vertx.fileSystem().writeFileBlocking(path, Buffer.buffer(data));
+    ReadStream<Buffer> stream = vertx.fileSystem().openBlocking(path, new OpenOptions());
+    MailAttachment attachment = MailAttachment.create().setName("large.data").setStream(stream).setSize(data.length);
+    MailMessage message = exampleMessage().setText(TEXT_BODY).setAttachment(attachment);
+    DKIMSignOptions simple = new DKIMSignOptions(dkimOptionsBase)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.SIMPLE).setBodyCanonAlgo(CanonicalizationAlgorithm.SIMPLE);
+    DKIMSignOptions relaxed = new DKIMSignOptions(dkimOptionsBase).setBodyLimit(100000)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.RELAXED).setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED);
+    MailClient mailClient = MailClient.create(vertx, configLogin().setEnableDKIM(true)
+      .addDKIMSignOption(simple).addDKIMSignOption(relaxed)
+      .setDkimWorkerPoolName("dkim-worker").setDkimWorkerPoolSize(2));
+    testSuccess(mailClient, message, () -> {
+      final MimeMultipart multiPart = (MimeMultipart)wiser.getMessages().get(0).getMimeMessage().getContent();
+      testContext.assertTrue(Arrays.equals(data, inputStreamToBytes(multiPart.getBodyPart(1).getInputStream())));
+      Message jamesMessage = new Message(new ByteArrayInputStream(wiser.getMessages().get(0).getData()));
+      MockPublicKeyRecordRetriever recordRetriever = new MockPublicKeyRecordRetriever();
+      recordRetriever.addRecord("lgao", "example.com", "v=DKIM1; k=rsa; p=" + pubKeyStr);
+      List<SignatureRecord> records = new DKIMVerifier(recordRetriever).verify(jamesMessage, jamesMessage.getBodyInputStream());
+      testContext.assertEquals(2, records.size());
+      vertx.fileSystem().deleteBlocking(path);
+    });
+  }
+
+  @Test
+  public void testMailRelaxedRelaxedAttachmentStreamOnWorkerPool(TestContext testContext) {
+    this.testContext = testContext;
+    String path = "logo-white-big.png";
+    Buffer img = vertx.fileSystem().readFileBlocking(path);
+    ReadStream<Buffer> stream = vertx.fileSystem().openBlocking(path, new OpenOptions());
+    MailAttachment attachment = MailAttachment.create().setName("logo-white-big.png").setStream(stream).setSize(img.length());
+    MailMessage message = exampleMessage().setText(TEXT_BODY).setHtml(HTML_BODY).setAttachment(attachment);
+
+    DKIMSignOptions dkimOps = new DKIMSignOptions(dkimOptionsBase)
+      .setHeaderCanonAlgo(CanonicalizationAlgorithm.RELAXED).setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED);
+    MailClient mailClient = MailClient.create(vertx, configLogin().setEnableDKIM(true).addDKIMSignOption(dkimOps)
+      .setDkimWorkerPoolName("dkim-worker").setDkimWorkerPoolSize(2));
+    testSuccess(mailClient, message, () -> {
+      final MimeMultipart multiPart = (MimeMultipart)wiser.getMessages().get(0).getMimeMessage().getContent();
+      testContext.assertEquals(2, multiPart.getCount());
+      testContext.assertTrue(Arrays.equals(img.getBytes(), inputStreamToBytes(multiPart.getBodyPart(1).getInputStream())));
+      testDKIMSign(dkimOps, testContext);
+    });
+  }
+
   @Test
   public void testMailSPlainNonExistedCopiedHeaders(TestContext testContext) {
     this.testContext = testContext;
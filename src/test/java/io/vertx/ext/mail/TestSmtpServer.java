@@ -25,6 +25,7 @@ import io.vertx.core.net.NetServerOptions;
 import io.vertx.core.net.NetSocket;
 import io.vertx.core.parsetools.RecordParser;
 
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -41,6 +42,9 @@ public class TestSmtpServer {
 
   private NetServer netServer;
   private String[][] dialogue;
+  // the dialogues of the connections after the first one, the last one is used for all further connections
+  private String[][][] nextDialogues = new String[0][][];
+  private final AtomicInteger connections = new AtomicInteger();
   private boolean closeImmediately = false;
   private int closeWaitTime = 10;
 
@@ -86,6 +90,7 @@ public class TestSmtpServer {
     netServer = vertx.createNetServer(nsOptions);
 
     netServer.connectHandler(socket -> {
+      final String[][] dialogue = connectionDialogue(connections.getAndIncrement());
       writeResponses(socket, dialogue[0]);
       if (dialogue.length == 1) {
         if (closeImmediately) {
@@ -100,7 +105,16 @@ public class TestSmtpServer {
         final AtomicInteger skipUntilDot = new AtomicInteger(0);
         final AtomicBoolean holdFire = new AtomicBoolean(false);
         final AtomicInteger inputLineIndex = new AtomicInteger(0);
-        socket.handler(RecordParser.newDelimited("\r\n", buffer -> {
+        final AtomicBoolean bdatData = new AtomicBoolean(false);
+        final RecordParser parser = RecordParser.newDelimited("\r\n");
+        socket.handler(parser);
+        parser.handler(buffer -> {
+          if (bdatData.getAndSet(false)) {
+            // the data of a BDAT command has been read
+            log.debug("C:<" + buffer.length() + " bytes of BDAT data>");
+            parser.delimitedMode("\r\n");
+            return;
+          }
           final String inputLine = buffer.toString();
           log.debug("C:" + inputLine);
           if (skipUntilDot.get() == 1) {
@@ -142,6 +156,13 @@ public class TestSmtpServer {
             if (inputLine.toUpperCase(Locale.ENGLISH).equals("DATA")) {
               skipUntilDot.set(1);
             }
+            if (inputLine.toUpperCase(Locale.ENGLISH).startsWith("BDAT ")) {
+              int size = Integer.parseInt(inputLine.split(" ")[1]);
+              if (size > 0) {
+                bdatData.set(true);
+                parser.fixedSizeMode(size);
+              }
+            }
             if (!holdFire.get() && inputLine.toUpperCase(Locale.ENGLISH).equals("STARTTLS")) {
               writeResponses(socket, dialogue[lines.getAndIncrement()]);
               //TODO loop
@@ -161,7 +182,7 @@ public class TestSmtpServer {
               vertx.setTimer(closeWaitTime * 1000, v -> socket.close());
             }
           }
-        }));
+        });
       }
     });
     CountDownLatch latch = new CountDownLatch(1);
@@ -173,6 +194,13 @@ public class TestSmtpServer {
     }
   }
 
+  private String[][] connectionDialogue(int connection) {
+    if (connection == 0 || nextDialogues.length == 0) {
+      return dialogue;
+    }
+    return nextDialogues[Math.min(connection, nextDialogues.length) - 1];
+  }
+
   private void writeResponses(NetSocket socket, String[] responses) {
     for (String line: responses) {
       log.debug("S:" + line);
@@ -182,6 +210,7 @@ public class TestSmtpServer {
 
   public TestSmtpServer setDialogue(String... dialogue) {
     this.dialogue = new String[dialogue.length][1];
+    this.nextDialogues = new String[0][][];
     for (int i = 0; i < dialogue.length; i ++) {
       this.dialogue[i] = new String[]{dialogue[i]};
     }
@@ -198,6 +227,22 @@ public class TestSmtpServer {
    */
   public TestSmtpServer setDialogueArray(String[][] dialogue) {
     this.dialogue = dialogue;
+    this.nextDialogues = new String[0][][];
+    return this;
+  }
+
+  /**
+   * Sets the dialogue array of each connection in the order the connections are accepted.
+   *
+   * The last dialogue is used for all further connections.
+   *
+   * @param dialogues the dialogues of the connections
+   * @return a reference to this, so the API can be used fluently
+   */
+  public TestSmtpServer setDialogueArrays(String[][]... dialogues) {
+    this.dialogue = dialogues[0];
+    this.nextDialogues = Arrays.copyOfRange(dialogues, 1, dialogues.length);
+    connections.set(0);
     return this;
   }
 
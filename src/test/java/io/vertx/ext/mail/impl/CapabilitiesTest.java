@@ -45,4 +45,17 @@ public class CapabilitiesTest {
     testContext.assertTrue(capa.getCapaAuth().iterator().next().equals("PLAIN"));
   }
 
+  @Test
+  public void testCapaChunking(TestContext testContext) {
+    String message = "250-localhost\n" +
+      "250-PIPELINING\n" +
+      "250-CHUNKING\n" +
+      "250 BINARYMIME";
+    Capabilities capa = new Capabilities();
+    testContext.assertFalse(capa.isCapaChunking());
+    capa.parseCapabilities(message);
+    testContext.assertTrue(capa.isCapaChunking());
+    testContext.assertTrue(capa.isCapaBinaryMime());
+  }
+
 }
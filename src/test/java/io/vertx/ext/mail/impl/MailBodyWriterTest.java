@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * test the body writer used for DATA and BDAT
+ */
+public class MailBodyWriterTest {
+
+  private String write(String body, boolean dotStuffing) {
+    CollectingStream out = new CollectingStream(false);
+    Promise<Void> promise = Promise.promise();
+    new MailBodyWriter(out, dotStuffing).write(body, promise);
+    assertTrue(promise.future().succeeded());
+    return out.data().toString();
+  }
+
+  @Test
+  public void testLineEnds() {
+    assertEquals("line1\r\nline2\r\n", write("line1\nline2", true));
+    assertEquals("line1\r\nline2\r\n", write("line1\r\nline2\r\n", true));
+    assertEquals("line1\r\n\r\nline2\r\n", write("line1\n\nline2\n", true));
+  }
+
+  @Test
+  public void testTrailingLineBreaks() {
+    assertEquals("line\r\n", write("line\n\n\n", true));
+    assertEquals("\r\n", write("", true));
+    assertEquals("", write("\n\n", true));
+  }
+
+  @Test
+  public void testDotStuffing() {
+    assertEquals("..\r\n..line\r\na.b\r\n...\r\n", write(".\n.line\na.b\n..", true));
+    assertEquals(".\r\n.line\r\na.b\r\n..\r\n", write(".\n.line\na.b\n..", false));
+  }
+
+  @Test
+  public void testLargeBody() {
+    StringBuilder sb = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append(".line ").append(i).append('\n');
+      expected.append("..line ").append(i).append("\r\n");
+    }
+    CollectingStream out = new CollectingStream(false);
+    Promise<Void> promise = Promise.promise();
+    new MailBodyWriter(out, true).write(sb.toString(), promise);
+    assertTrue(promise.future().succeeded());
+    assertEquals(expected.toString(), out.data().toString());
+    assertTrue(out.writes > 1);
+    assertTrue(out.writes < 10);
+  }
+
+  @Test
+  public void testBackpressure() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append("line ").append(i).append('\n');
+    }
+    CollectingStream out = new CollectingStream(true);
+    Promise<Void> promise = Promise.promise();
+    new MailBodyWriter(out, true).write(sb.toString(), promise);
+    int drains = 0;
+    while (!promise.future().isComplete()) {
+      // one buffer is written each time the queue drains
+      assertEquals(drains, out.writes);
+      assertNotNull(out.drainHandler);
+      out.drain();
+      drains++;
+    }
+    assertTrue(drains > 1);
+    assertEquals(sb.toString().replace("\n", "\r\n"), out.data().toString());
+  }
+
+  /**
+   * collects the written buffers, the write queue is full after each write until it is drained if requested
+   */
+  private static class CollectingStream implements WriteStream<Buffer> {
+
+    private final List<Buffer> buffers = new ArrayList<>();
+    private final boolean fullAfterWrite;
+    private boolean full;
+    private int writes;
+    private Handler<Void> drainHandler;
+
+    CollectingStream(boolean fullAfterWrite) {
+      this.fullAfterWrite = fullAfterWrite;
+      this.full = fullAfterWrite;
+    }
+
+    Buffer data() {
+      Buffer data = Buffer.buffer();
+      buffers.forEach(data::appendBuffer);
+      return data;
+    }
+
+    void drain() {
+      full = false;
+      drainHandler.handle(null);
+    }
+
+    @Override
+    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+      assertTrue(data.length() <= MailBodyWriter.BUFFER_SIZE + 128);
+      buffers.add(data);
+      writes++;
+      full = fullAfterWrite;
+      return Future.succeededFuture();
+    }
+
+    @Override
+    public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+      write(data).onComplete(handler);
+    }
+
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+      handler.handle(Future.succeededFuture());
+    }
+
+    @Override
+    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      return full;
+    }
+
+    @Override
+    public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+      this.drainHandler = handler;
+      return this;
+    }
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.ext.mail.MailAttachment;
+import io.vertx.ext.mail.MailClient;
+import io.vertx.ext.mail.MailMessage;
+import io.vertx.ext.mail.SMTPTestDummy;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * Tests sending the mail data with BDAT (RFC 3030)
+ */
+@RunWith(VertxUnitRunner.class)
+public class MailChunkingTest extends SMTPTestDummy {
+
+  private static final String EHLO_CHUNKING_PIPELINING = "250-example.com\n" +
+    "250-PIPELINING\n" +
+    "250 CHUNKING";
+
+  // base64 encoded, this needs three chunks
+  private Buffer largeData() {
+    Buffer data = Buffer.buffer();
+    for (int i = 0; i < 120000; i++) {
+      data.appendByte((byte) i);
+    }
+    return data;
+  }
+
+  @Test
+  public void chunkingTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {EHLO_CHUNKING_PIPELINING},
+      {"MAIL FROM", "RCPT TO"},
+      {"250 2.1.0 Ok", "250 2.1.5 Ok"},
+      {"^BDAT \\d+ LAST$"},
+      {"250 2.0.0 Ok: queued as ABCD"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    testSuccess(MailClient.create(vertx, configNoSSL().setChunking(true)), exampleMessage().setText(".line\n.."));
+  }
+
+  @Test
+  public void chunkingDisabledTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {EHLO_CHUNKING_PIPELINING},
+      {"MAIL FROM", "RCPT TO", "DATA"},
+      {"250 2.1.0 Ok", "250 2.1.5 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {"250 2.0.0 Ok: queued as ABCD"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    testSuccess(MailClient.create(vertx, configNoSSL()), exampleMessage());
+  }
+
+  /**
+   * A large mail is sent in several chunks without waiting for the replies.
+   */
+  @Test
+  public void chunkingLargeMailTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {EHLO_CHUNKING_PIPELINING},
+      {"MAIL FROM", "RCPT TO"},
+      {"250 2.1.0 Ok", "250 2.1.5 Ok"},
+      {"^BDAT \\d+$", "^BDAT \\d+$", "^BDAT \\d+ LAST$"},
+      {"250 2.0.0 chunk Ok", "250 2.0.0 chunk Ok", "250 2.0.0 Ok: queued as ABCD"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    MailMessage message = exampleMessage();
+    message.setAttachment(Collections.singletonList(MailAttachment.create().setData(largeData())));
+    testSuccess(MailClient.create(vertx, configNoSSL().setChunking(true)), message);
+  }
+
+  /**
+   * Without PIPELINING, each chunk waits for the reply to the previous chunk.
+   */
+  @Test
+  public void chunkingNoPipeliningTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {"250-example.com\n" +
+        "250 CHUNKING"},
+      {"MAIL FROM"},
+      {"250 2.1.0 Ok"},
+      {"RCPT TO"},
+      {"250 2.1.5 Ok"},
+      {"^BDAT \\d+$"},
+      {"250 2.0.0 chunk Ok"},
+      {"^BDAT \\d+$"},
+      {"250 2.0.0 chunk Ok"},
+      {"^BDAT \\d+ LAST$"},
+      {"250 2.0.0 Ok: queued as ABCD"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    String path = vertx.fileSystem().createTempFileBlocking("mail", ".data");
+    vertx.fileSystem().writeFileBlocking(path, largeData());
+    MailMessage message = exampleMessage();
+    message.setAttachment(Collections.singletonList(MailAttachment.create()
+      .setStream(vertx.fileSystem().openBlocking(path, new OpenOptions()))
+      .setSize(largeData().length())));
+    testSuccess(MailClient.create(vertx, configNoSSL().setChunking(true)), message);
+  }
+
+  @Test
+  public void chunkingFailedTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {EHLO_CHUNKING_PIPELINING},
+      {"MAIL FROM", "RCPT TO"},
+      {"250 2.1.0 Ok", "250 2.1.5 Ok"},
+      {"^BDAT \\d+ LAST$"},
+      {"554 5.6.0 message rejected"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setChunking(true));
+    mailClient.sendMail(exampleMessage(), testContext.asyncAssertFailure(t -> {
+      testContext.assertEquals("sending data failed: 554 5.6.0 message rejected", t.getMessage());
+      mailClient.close();
+    }));
+  }
+
+  /**
+   * The replies to the chunks pipelined after a rejected chunk are ignored.
+   */
+  @Test
+  public void chunkingFirstChunkFailedTest(TestContext testContext) {
+    this.testContext = testContext;
+    final String[][] dialogue = {
+      {"220 example.com ESMTP"},
+      {"EHLO"},
+      {EHLO_CHUNKING_PIPELINING},
+      {"MAIL FROM", "RCPT TO"},
+      {"250 2.1.0 Ok", "250 2.1.5 Ok"},
+      {"^BDAT \\d+$", "^BDAT \\d+$", "^BDAT \\d+ LAST$"},
+      {"554 5.6.0 chunk rejected", "250 2.0.0 chunk Ok", "250 2.0.0 Ok: queued as ABCD"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+    smtpServer.setDialogueArray(dialogue);
+    MailMessage message = exampleMessage();
+    message.setAttachment(Collections.singletonList(MailAttachment.create().setData(largeData())));
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setChunking(true));
+    mailClient.sendMail(message, testContext.asyncAssertFailure(t -> {
+      testContext.assertEquals("sending data failed: 554 5.6.0 chunk rejected", t.getMessage());
+      mailClient.close();
+    }));
+  }
+
+}
@@ -262,4 +262,110 @@ public class MailPipeliningTest extends SMTPTestDummy {
 
   }
 
+  /**
+   * The RSET of a reused connection is sent in the same group as the envelope.
+   */
+  @Test
+  public void pipeLiningResetTest(TestContext testContext) {
+    this.testContext = testContext;
+    smtpServer.setDialogueArray(resetDialogue("250 2.0.0 Ok"));
+    sendTwoMails(testContext);
+  }
+
+  /**
+   * If the RSET of a reused connection fails, the mail is sent over a new connection.
+   */
+  @Test
+  public void pipeLiningResetFailedTest(TestContext testContext) {
+    this.testContext = testContext;
+    smtpServer.setDialogueArray(resetDialogue("500 reset failed"));
+    sendTwoMails(testContext);
+  }
+
+  private String[][] resetDialogue(String resetReply) {
+    return new String[][] {
+      {"220 smtp.gmail.com ESMTP o8sm3958210pjs.6 - gsmtp"},
+      {"EHLO"},
+      {"250-smtp.gmail.com at your service, [209.132.188.80]\n" +
+        "250 PIPELINING"},
+      {"MAIL FROM", "RCPT TO", "DATA"},
+      {"250 2.1.0 Ok", "250 2.1.0 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {"250 2.0.0 Ok: queued as ABCD"},
+      {"RSET", "MAIL FROM", "RCPT TO", "DATA"},
+      {resetReply, "250 2.1.0 Ok", "250 2.1.0 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {"250 2.0.0 Ok: queued as ABCE"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+  }
+
+  private void sendTwoMails(TestContext testContext) {
+    MailClient mailClient = MailClient.create(vertx, configNoSSL());
+    mailClient.sendMail(exampleMessage(), testContext.asyncAssertSuccess(mr ->
+      mailClient.sendMail(exampleMessage(), testContext.asyncAssertSuccess(mr2 -> {
+        testContext.assertEquals(1, mr2.getRecipients().size());
+        mailClient.close();
+      }))));
+  }
+
+  /**
+   * The end of data of the first mail and the envelope of the second mail are sent together.
+   */
+  @Test
+  public void transactionPipeliningTest(TestContext testContext) {
+    this.testContext = testContext;
+    smtpServer.setDialogueArray(transactionDialogue("250 2.0.0 Ok: queued as ABCD"));
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setMaxPoolSize(1).setTransactionPipelining(true));
+    mailClient.sendMails(Arrays.asList(exampleMessage(), exampleMessage()), testContext.asyncAssertSuccess(results -> {
+      testContext.assertEquals(2, results.size());
+      testContext.assertEquals(1, results.get(1).getRecipients().size());
+      mailClient.close();
+    }));
+  }
+
+  /**
+   * If the end of data of the first mail is rejected, the mail of the pipelined envelope has not been attempted and
+   * is sent again over a new connection.
+   */
+  @Test
+  public void transactionPipeliningEndDotFailedTest(TestContext testContext) {
+    this.testContext = testContext;
+    smtpServer.setDialogueArrays(transactionDialogue("554 5.7.1 rejected"), new String[][] {
+      {"220 smtp.gmail.com ESMTP o8sm3958210pjs.6 - gsmtp"},
+      {"EHLO"},
+      {"250-smtp.gmail.com at your service, [209.132.188.80]\n" +
+        "250 PIPELINING"},
+      {"MAIL FROM", "RCPT TO", "DATA"},
+      {"250 2.1.0 Ok", "250 2.1.0 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {"250 2.0.0 Ok: queued as ABCF"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    });
+    MailClient mailClient = MailClient.create(vertx, configNoSSL().setMaxPoolSize(1).setTransactionPipelining(true));
+    mailClient.sendMails(Arrays.asList(exampleMessage(), exampleMessage()), testContext.asyncAssertSuccess(results -> {
+      testContext.assertEquals(2, results.size());
+      testContext.assertEquals("sending data failed: 554 5.7.1 rejected", results.get(0).getCause().getMessage());
+      testContext.assertNull(results.get(1).getCause());
+      testContext.assertEquals(1, results.get(1).getRecipients().size());
+      mailClient.close();
+    }));
+  }
+
+  private String[][] transactionDialogue(String firstEndDotReply) {
+    return new String[][] {
+      {"220 smtp.gmail.com ESMTP o8sm3958210pjs.6 - gsmtp"},
+      {"EHLO"},
+      {"250-smtp.gmail.com at your service, [209.132.188.80]\n" +
+        "250 PIPELINING"},
+      {"MAIL FROM", "RCPT TO", "DATA"},
+      {"250 2.1.0 Ok", "250 2.1.0 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {firstEndDotReply},
+      {"MAIL FROM", "RCPT TO", "DATA"},
+      {"250 2.1.0 Ok", "250 2.1.0 Ok", "354 End data with <CR><LF>.<CR><LF>"},
+      {"250 2.0.0 Ok: queued as ABCE"},
+      {"QUIT"},
+      {"221 2.0.0 Bye"}
+    };
+  }
+
 }
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests MultilineParser.
@@ -262,6 +263,27 @@ public class MultilineParserTest {
     multilineParser.handle(Buffer.buffer(multilinesWithLF + "\r\n"));
   }
 
+  /**
+   * Tests that the responses of pipelined command groups are handed over group by group
+   */
+  @Test
+  public void testCommandGroups(TestContext testContext) {
+    Async async = testContext.async(2);
+    final AtomicInteger group = new AtomicInteger();
+    Handler<Buffer> dataHandler = b -> {
+      if (group.getAndIncrement() == 0) {
+        testContext.assertEquals("250 2.0.0 Ok: queued", b.toString());
+      } else {
+        testContext.assertEquals("250 2.1.0 Ok\r\n250-2.1.5 Ok\n250 2.1.5 Ok\r\n354 go ahead", b.toString());
+      }
+      async.countDown();
+    };
+    MultilineParser multilineParser = new MultilineParser(dataHandler);
+    multilineParser.expectGroup(1).expectGroup(3);
+    multilineParser.handle(Buffer.buffer("250 2.0.0 Ok: queued\r\n250 2.1.0 Ok\r\n250-2.1.5 Ok\r\n"));
+    multilineParser.handle(Buffer.buffer("250 2.1.5 Ok\r\n354 go ahead\r\n"));
+  }
+
   @Test
   public void testLastLine(TestContext testContext) {
     MultilineParser multilineParser = new MultilineParser(b -> logger.debug(b.toString()));
@@ -16,14 +16,18 @@
 
 package io.vertx.ext.mail.impl;
 
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.ext.mail.ConnectionPoolBusyException;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.SMTPTestWiser;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
@@ -447,4 +451,309 @@ public class SMTPConnectionPoolTest extends SMTPTestWiser {
       }
     });
   }
+
+  /**
+   * test that the most recently returned idle connection is reused first
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testReuseMostRecentlyReturned(TestContext testContext) {
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    Async async = testContext.async();
+    pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        pool.getConnection("hostname", result2 -> {
+          if (result2.succeeded()) {
+            testContext.assertEquals(2, pool.connCount());
+            result.result().returnToPool();
+            result2.result().returnToPool();
+            pool.getConnection("hostname", result3 -> {
+              if (result3.succeeded()) {
+                testContext.assertEquals(result2.result(), result3.result());
+                testContext.assertEquals(2, pool.connCount());
+                result3.result().returnToPool();
+                pool.close(v -> {
+                  testContext.assertEquals(0, pool.connCount());
+                  async.complete();
+                });
+              } else {
+                testContext.fail(result3.cause());
+              }
+            });
+          } else {
+            testContext.fail(result2.cause());
+          }
+        });
+      } else {
+        testContext.fail(result.cause());
+      }
+    });
+  }
+
+  /**
+   * test that a per context pool reuses the idle connection on the context that opened it
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testPerContextPoolReuse(TestContext testContext) {
+    final MailConfig config = configNoSSL().setPerContextPool(true);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    Context context = vertx.getOrCreateContext();
+    context.runOnContext(v -> pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        testContext.assertEquals(context, Vertx.currentContext());
+        testContext.assertEquals(1, pool.connCount());
+        result.result().returnToPool();
+        pool.getConnection("hostname", result2 -> {
+          if (result2.succeeded()) {
+            testContext.assertEquals(result.result(), result2.result());
+            testContext.assertEquals(1, pool.connCount());
+            result2.result().returnToPool();
+            pool.close(v2 -> {
+              testContext.assertEquals(0, pool.connCount());
+              async.complete();
+            });
+          } else {
+            testContext.fail(result2.cause());
+          }
+        });
+      } else {
+        testContext.fail(result.cause());
+      }
+    }));
+  }
+
+  /**
+   * test that a per context pool takes over the idle connection of another context if the budget is exhausted
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testPerContextPoolSteal(TestContext testContext) {
+    final MailConfig config = configNoSSL().setPerContextPool(true).setMaxPoolSize(1);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    Context context1 = vertx.getOrCreateContext();
+    Context context2 = vertx.getOrCreateContext();
+    context1.runOnContext(v -> pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        result.result().returnToPool();
+        context2.runOnContext(v2 -> pool.getConnection("hostname", result2 -> {
+          if (result2.succeeded()) {
+            testContext.assertEquals(result.result(), result2.result());
+            testContext.assertEquals(1, pool.connCount());
+            result2.result().returnToPool();
+            pool.close(v3 -> {
+              testContext.assertEquals(0, pool.connCount());
+              async.complete();
+            });
+          } else {
+            testContext.fail(result2.cause());
+          }
+        }));
+      } else {
+        testContext.fail(result.cause());
+      }
+    }));
+  }
+
+  /**
+   * test that a waiter of one context gets the connection returned on another context
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testPerContextPoolWaiter(TestContext testContext) {
+    final MailConfig config = configNoSSL().setPerContextPool(true).setMaxPoolSize(1);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    Context context1 = vertx.getOrCreateContext();
+    Context context2 = vertx.getOrCreateContext();
+    context1.runOnContext(v -> pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        context2.runOnContext(v2 -> pool.getConnection("hostname", result2 -> {
+          if (result2.succeeded()) {
+            testContext.assertEquals(result.result(), result2.result());
+            testContext.assertEquals(1, pool.connCount());
+            result2.result().returnToPool();
+            pool.close(v3 -> {
+              testContext.assertEquals(0, pool.connCount());
+              async.complete();
+            });
+          } else {
+            testContext.fail(result2.cause());
+          }
+        }));
+        vertx.setTimer(100, v2 -> result.result().returnToPool());
+      } else {
+        testContext.fail(result.cause());
+      }
+    }));
+  }
+  /**
+   * test that an idle connection is closed after the pool idle timeout
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testPoolIdleTimeout(TestContext testContext) {
+    final MailConfig config = configNoSSL().setPoolIdleTimeout(100).setPoolIdleTimeoutUnit(TimeUnit.MILLISECONDS)
+      .setPoolCleanerPeriod(50);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        final SMTPConnection conn = result.result();
+        conn.returnToPool();
+        testContext.assertEquals(1, pool.connCount());
+        vertx.setTimer(1000, v -> {
+          testContext.assertTrue(conn.isClosed(), "connection was not closed");
+          testContext.assertEquals(0, pool.connCount());
+          pool.close(v2 -> async.complete());
+        });
+      } else {
+        testContext.fail(result.cause());
+      }
+    });
+  }
+
+  /**
+   * test that a connection is closed instead of being reused after max mails per connection
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testMaxMailsPerConnection(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMaxMailsPerConnection(2);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", result -> {
+      if (result.succeeded()) {
+        final SMTPConnection conn = result.result();
+        conn.countMail();
+        conn.returnToPool();
+        pool.getConnection("hostname", result2 -> {
+          if (result2.succeeded()) {
+            testContext.assertEquals(conn, result2.result());
+            conn.countMail();
+            conn.returnToPool();
+            vertx.setTimer(1000, v -> {
+              testContext.assertTrue(conn.isClosed(), "connection was not closed");
+              testContext.assertEquals(0, pool.connCount());
+              pool.close(v2 -> async.complete());
+            });
+          } else {
+            testContext.fail(result2.cause());
+          }
+        });
+      } else {
+        testContext.fail(result.cause());
+      }
+    });
+  }
+
+  /**
+   * test that warm up opens the requested connections as idle connections
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testWarmUp(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMaxPoolSize(3);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.warmUp("hostname", 5, testContext.asyncAssertSuccess(v -> {
+      // limited by the max pool size
+      testContext.assertEquals(3, pool.connCount());
+      pool.getConnection("hostname", testContext.asyncAssertSuccess(conn -> {
+        testContext.assertEquals(3, pool.connCount());
+        conn.returnToPool();
+        pool.close(v2 -> async.complete());
+      }));
+    }));
+  }
+
+  /**
+   * test that the pool opens connections in the background to keep min idle connections
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testMinIdle(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMinIdle(2).setPoolCleanerPeriod(50);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", testContext.asyncAssertSuccess(conn -> {
+      vertx.setTimer(1000, v -> {
+        // the connection in use does not count as idle
+        testContext.assertEquals(3, pool.connCount());
+        conn.returnToPool();
+        pool.close(v2 -> async.complete());
+      });
+    }));
+  }
+
+  /**
+   * test that the pool does not keep more idle connections than the max pool size
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testMinIdleAboveMaxPoolSize(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMaxPoolSize(2).setMinIdle(5).setPoolCleanerPeriod(50);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", testContext.asyncAssertSuccess(conn -> {
+      conn.returnToPool();
+      vertx.setTimer(500, v -> {
+        testContext.assertEquals(2, pool.connCount());
+        pool.close(v2 -> async.complete());
+      });
+    }));
+  }
+
+  /**
+   * test that a getConnection fails immediately if the wait queue is full
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testWaitQueueFull(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMaxPoolSize(1).setMaxWaitQueueSize(0);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", testContext.asyncAssertSuccess(conn ->
+      pool.getConnection("hostname", testContext.asyncAssertFailure(err -> {
+        testContext.assertTrue(err instanceof ConnectionPoolBusyException);
+        conn.returnToPool();
+        pool.close(v -> async.complete());
+      }))));
+  }
+
+  /**
+   * test that a waiting getConnection fails after the connection acquire timeout
+   *
+   * @param testContext
+   */
+  @Test
+  public final void testConnectionAcquireTimeout(TestContext testContext) {
+    final MailConfig config = configNoSSL().setMaxPoolSize(1).setConnectionAcquireTimeout(100);
+    Async async = testContext.async();
+    SMTPConnectionPool pool = new SMTPConnectionPool(vertx, config);
+    pool.getConnection("hostname", testContext.asyncAssertSuccess(conn -> {
+      long start = System.currentTimeMillis();
+      pool.getConnection("hostname", testContext.asyncAssertFailure(err -> {
+        testContext.assertTrue(err instanceof ConnectionPoolBusyException);
+        testContext.assertTrue(System.currentTimeMillis() - start >= 100);
+        conn.returnToPool();
+        // the timed out waiter does not get the connection
+        testContext.assertTrue(conn.isIdle());
+        pool.close(v -> async.complete());
+      }));
+    }));
+  }
+
 }
@@ -16,14 +16,24 @@
 
 package io.vertx.ext.mail.impl;
 
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.NetSocketInternal;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.mail.MailClient;
 import io.vertx.ext.mail.MailConfig;
 import io.vertx.ext.mail.MailMessage;
 import io.vertx.ext.mail.MailResult;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * MailClient providing a few internal getters for unit tests
  *
@@ -31,6 +41,7 @@ import io.vertx.ext.mail.MailResult;
  */
 public class TestMailClient implements MailClient {
 
+  private final Vertx vertx;
   private final MailClientImpl mailClient;
 
   /**
@@ -38,6 +49,7 @@ public class TestMailClient implements MailClient {
    * @param config
    */
   public TestMailClient(Vertx vertx, MailConfig config) {
+    this.vertx = vertx;
     mailClient = new MailClientImpl(vertx, config, "foo");
   }
 
@@ -49,6 +61,39 @@ public class TestMailClient implements MailClient {
     return mailClient.sendMail(email, resultHandler);
   }
 
+  /* (non-Javadoc)
+   * @see io.vertx.ext.mail.MailClient#sendMails(java.util.List, io.vertx.core.Handler)
+   */
+  @Override
+  public MailClient sendMails(List<MailMessage> emails, Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    return mailClient.sendMails(emails, resultHandler);
+  }
+
+  /* (non-Javadoc)
+   * @see io.vertx.ext.mail.MailClient#sendMails(io.vertx.core.streams.ReadStream, io.vertx.core.Handler)
+   */
+  @Override
+  public MailClient sendMails(ReadStream<MailMessage> emails, Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    return mailClient.sendMails(emails, resultHandler);
+  }
+
+  /* (non-Javadoc)
+   * @see io.vertx.ext.mail.MailClient#sendMails(io.vertx.ext.mail.MailMessage, java.util.List, io.vertx.core.Handler)
+   */
+  @Override
+  public MailClient sendMails(MailMessage template, List<JsonObject> values,
+                              Handler<AsyncResult<List<MailResult>>> resultHandler) {
+    return mailClient.sendMails(template, values, resultHandler);
+  }
+
+  /* (non-Javadoc)
+   * @see io.vertx.ext.mail.MailClient#warmUp(int, io.vertx.core.Handler)
+   */
+  @Override
+  public MailClient warmUp(int connections, Handler<AsyncResult<Void>> resultHandler) {
+    return mailClient.warmUp(connections, resultHandler);
+  }
+
   /* (non-Javadoc)
    * @see io.vertx.ext.mail.MailClient#close()
    */
@@ -72,4 +117,30 @@ public class TestMailClient implements MailClient {
   public int connCount() {
     return mailClient.getConnectionPool().connCount();
   }
+
+  /**
+   * open a connection and count the writes to its socket, the connection is returned to the pool afterwards so that
+   * it is used for the next mail if the pool has only one connection
+   * @param writes incremented for each write to the socket
+   * @param resultHandler called when the connection is in the pool
+   */
+  public void countSocketWrites(AtomicInteger writes, Handler<AsyncResult<Void>> resultHandler) {
+    // the pool is used on a context like the mail client does
+    vertx.runOnContext(v -> getConnectionPool().getConnection("foo", result -> {
+      if (result.succeeded()) {
+        SMTPConnection conn = result.result();
+        ((NetSocketInternal) conn.getSocket()).channelHandlerContext().pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+          @Override
+          public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            writes.incrementAndGet();
+            super.write(ctx, msg, promise);
+          }
+        });
+        conn.returnToPool();
+        resultHandler.handle(Future.succeededFuture());
+      } else {
+        resultHandler.handle(Future.failedFuture(result.cause()));
+      }
+    }));
+  }
 }
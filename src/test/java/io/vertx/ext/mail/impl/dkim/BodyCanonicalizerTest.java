@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2011-2019 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.impl.dkim;
+
+import io.vertx.ext.mail.CanonicalizationAlgorithm;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the streaming body canonicalization with bodies larger than its buffer.
+ */
+public class BodyCanonicalizerTest {
+
+  private String canonicalize(String body, CanonicalizationAlgorithm canon) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertTrue(new BodyCanonicalizer(canon).canonicalize(body, (bytes, length) -> {
+      out.write(bytes, 0, length);
+      return true;
+    }));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testEmptyBody() {
+    assertEquals("\r\n", canonicalize("", CanonicalizationAlgorithm.SIMPLE));
+    assertEquals("\r\n", canonicalize("\r\n\r\n", CanonicalizationAlgorithm.SIMPLE));
+    assertEquals("\r\n", canonicalize(" \t\r\n", CanonicalizationAlgorithm.RELAXED));
+  }
+
+  @Test
+  public void testLineEnds() {
+    assertEquals("a\r\nb\r\n\r\nc\r\n", canonicalize("a\rb\n\r\nc\r\r", CanonicalizationAlgorithm.SIMPLE));
+    assertEquals("a\r\n \r\n", canonicalize("a\n \n\n", CanonicalizationAlgorithm.SIMPLE));
+    assertEquals("a\r\n", canonicalize("a\n \n\n", CanonicalizationAlgorithm.RELAXED));
+    assertEquals("a\r\n\r\nb\r\n", canonicalize("a\n \t\nb", CanonicalizationAlgorithm.RELAXED));
+  }
+
+  @Test
+  public void testNonAscii() {
+    String body = "über \u20ac \ud83d\ude00 \u4e2d\u6587";
+    assertEquals(body + "\r\n", canonicalize(body, CanonicalizationAlgorithm.SIMPLE));
+    assertEquals("a?b\r\n", canonicalize("a\ud83db", CanonicalizationAlgorithm.SIMPLE));
+  }
+
+  @Test
+  public void testLargeBody() {
+    StringBuilder body = new StringBuilder();
+    StringBuilder simple = new StringBuilder();
+    StringBuilder relaxed = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      body.append("line \t ").append(i).append(" über\t\n");
+      simple.append("line \t ").append(i).append(" über\t\r\n");
+      relaxed.append("line ").append(i).append(" über\r\n");
+    }
+    body.append("\n\n\n");
+    assertEquals(simple.toString(), canonicalize(body.toString(), CanonicalizationAlgorithm.SIMPLE));
+    assertEquals(relaxed.toString(), canonicalize(body.toString(), CanonicalizationAlgorithm.RELAXED));
+  }
+
+  @Test
+  public void testStop() {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      body.append("0123456789\n");
+    }
+    int[] writes = new int[1];
+    assertFalse(new BodyCanonicalizer(CanonicalizationAlgorithm.SIMPLE).canonicalize(body, (bytes, length) -> {
+      writes[0]++;
+      return false;
+    }));
+    assertEquals(1, writes[0]);
+  }
+
+}
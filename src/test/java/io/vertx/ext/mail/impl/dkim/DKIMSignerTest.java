@@ -20,8 +20,22 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mail.DKIMSignAlgorithm;
 import io.vertx.ext.mail.DKIMSignOptions;
 import io.vertx.ext.mail.CanonicalizationAlgorithm;
+import io.vertx.ext.mail.MailMessage;
+import io.vertx.ext.mail.mailencoder.EncodedPart;
+import io.vertx.ext.mail.mailencoder.MailEncoder;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -251,6 +265,76 @@ public class DKIMSignerTest {
 
   }
 
+  @Test
+  public void testBodyHashKey() {
+    DKIMSigner signer = new DKIMSigner(dkimOps().setHeaderCanonAlgo(CanonicalizationAlgorithm.SIMPLE), null);
+    DKIMSigner sameBody = new DKIMSigner(dkimOps().setHeaderCanonAlgo(CanonicalizationAlgorithm.RELAXED), null);
+    DKIMSigner relaxedBody = new DKIMSigner(dkimOps().setBodyCanonAlgo(CanonicalizationAlgorithm.RELAXED), null);
+    DKIMSigner bodyLimit = new DKIMSigner(dkimOps().setBodyLimit(100), null);
+    DKIMSigner sha1 = new DKIMSigner(dkimOps().setSignAlgo(DKIMSignAlgorithm.RSA_SHA1), null);
+    assertEquals(signer.bodyHashKey(), sameBody.bodyHashKey());
+    assertNotEquals(signer.bodyHashKey(), relaxedBody.bodyHashKey());
+    assertNotEquals(signer.bodyHashKey(), bodyLimit.bodyHashKey());
+    assertNotEquals(signer.bodyHashKey(), sha1.bodyHashKey());
+  }
+
+  @Test
+  public void testConcurrentSign() throws Exception {
+    DKIMSigner signer = new DKIMSigner(dkimOps(), null);
+    EncodedPart message = new MailEncoder(new MailMessage("from@example.com", "user@example.com", "Subject", "Text"),
+      "example.com").encodeMail();
+    String expected = signer.signEmail(null, message).result();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<java.util.concurrent.Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(() -> signer.signEmail(null, message).result()));
+      }
+      for (java.util.concurrent.Future<String> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static boolean isEd25519Supported() {
+    try {
+      KeyPairGenerator.getInstance("Ed25519");
+      return true;
+    } catch (NoSuchAlgorithmException e) {
+      return false;
+    }
+  }
+
+  @Test
+  public void testEd25519Sign() throws Exception {
+    Assume.assumeTrue("no Ed25519 support, it needs Java 15", isEd25519Supported());
+    KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+    DKIMSignOptions dkimOps = dkimOps().setSignAlgo(DKIMSignAlgorithm.ED25519_SHA256)
+      .setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+    DKIMSigner signer = new DKIMSigner(dkimOps, null);
+    EncodedPart message = new MailEncoder(new MailMessage("from@example.com", "user@example.com", "Subject", "Text"),
+      "example.com").encodeMail();
+    String dkimHeader = signer.signEmail(null, message).result();
+    assertTrue(dkimHeader.startsWith("v=1; a=ed25519-sha256; "));
+
+    // the signed data: the signed headers and the DKIM-Signature header without the signature
+    StringBuilder signedData = new StringBuilder();
+    for (String header : dkimOps.getSignedHeaders()) {
+      String value = message.headers().get(header);
+      if (value != null) {
+        signedData.append(signer.canonicHeader(header, value)).append("\r\n");
+      }
+    }
+    int sigIndex = dkimHeader.indexOf("; b=") + 4;
+    signedData.append(signer.canonicHeader(DKIMSigner.DKIM_SIGNATURE_HEADER, dkimHeader.substring(0, sigIndex)));
+    Signature verifier = Signature.getInstance("Ed25519");
+    verifier.initVerify(keyPair.getPublic());
+    verifier.update(MessageDigest.getInstance("SHA-256").digest(signedData.toString().getBytes()));
+    assertTrue(verifier.verify(Base64.getDecoder().decode(dkimHeader.substring(sigIndex))));
+  }
+
   @Test
   public void testSimpleBodyCannonic() {
     DKIMSignOptions dkimOps = dkimOps().setBodyCanonAlgo(CanonicalizationAlgorithm.SIMPLE);
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * test the base64 encoding of data arriving in pieces
+ */
+public class Base64LineEncoderTest {
+
+  private String expected(byte[] data) {
+    String encoded = Utils.base64(data).replace("\n", "\r\n");
+    return encoded.isEmpty() ? "" : encoded + "\r\n";
+  }
+
+  @Test
+  public void testEncodeInOnePiece() {
+    Random random = new Random(0);
+    for (int size = 0; size < 300; size++) {
+      byte[] data = new byte[size];
+      random.nextBytes(data);
+      Base64LineEncoder encoder = new Base64LineEncoder();
+      Buffer encoded = encoder.encode(Buffer.buffer(data)).appendBuffer(encoder.finish());
+      assertEquals(expected(data), encoded.toString());
+    }
+  }
+
+  @Test
+  public void testEncodeInPieces() {
+    Random random = new Random(0);
+    for (int n = 0; n < 100; n++) {
+      byte[] data = new byte[random.nextInt(2000)];
+      random.nextBytes(data);
+      Base64LineEncoder encoder = new Base64LineEncoder();
+      Buffer encoded = Buffer.buffer();
+      int position = 0;
+      while (position < data.length) {
+        int end = Math.min(data.length, position + random.nextInt(130));
+        Buffer lines = encoder.encode(Buffer.buffer(data).slice(position, end));
+        assertEquals(0, lines.length() % Base64LineEncoder.ENCODED_LINE_SIZE);
+        encoded.appendBuffer(lines);
+        position = end;
+      }
+      encoded.appendBuffer(encoder.finish());
+      assertEquals(expected(data), encoded.toString());
+    }
+  }
+
+}
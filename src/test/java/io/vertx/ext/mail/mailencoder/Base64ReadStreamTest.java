@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * test encoding attachment data when it is read
+ */
+@RunWith(VertxUnitRunner.class)
+public class Base64ReadStreamTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext testContext) {
+    vertx.close(testContext.asyncAssertSuccess());
+  }
+
+  private Buffer data(int size) {
+    Buffer data = Buffer.buffer();
+    for (int i = 0; i < size; i++) {
+      data.appendByte((byte) i);
+    }
+    return data;
+  }
+
+  private String expected(Buffer data) {
+    return Utils.base64(data.getBytes()).replace("\n", "\r\n") + "\r\n";
+  }
+
+  @Test
+  public void testEncode(TestContext testContext) {
+    Async async = testContext.async();
+    Buffer data = data(1000);
+    Buffer result = Buffer.buffer();
+    Base64ReadStream stream = new Base64ReadStream(vertx.getOrCreateContext(), data);
+    stream.endHandler(v -> {
+      testContext.assertEquals(expected(data), result.toString());
+      async.complete();
+    });
+    stream.handler(result::appendBuffer);
+  }
+
+  @Test
+  public void testFetch(TestContext testContext) {
+    Async async = testContext.async();
+    Buffer data = data(Base64ReadStream.CHUNK_SIZE * 3 + 10);
+    Buffer result = Buffer.buffer();
+    AtomicInteger chunks = new AtomicInteger();
+    Base64ReadStream stream = new Base64ReadStream(vertx.getOrCreateContext(), data);
+    stream.pause();
+    stream.handler(b -> {
+      chunks.incrementAndGet();
+      result.appendBuffer(b);
+      stream.fetch(1);
+    });
+    stream.endHandler(v -> {
+      testContext.assertEquals(4, chunks.get());
+      testContext.assertEquals(expected(data), result.toString());
+      async.complete();
+    });
+    stream.fetch(1);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.mail.MailAttachment;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * test the cache of encoded attachments
+ */
+public class EncodedAttachmentCacheTest {
+
+  private MailAttachment attachment(int size, int seed) {
+    Buffer data = Buffer.buffer();
+    for (int i = 0; i < size; i++) {
+      data.appendByte((byte) (i * seed));
+    }
+    return MailAttachment.create().setData(data);
+  }
+
+  @Test
+  public void testEncoded() {
+    EncodedAttachmentCache cache = new EncodedAttachmentCache(1000000);
+    MailAttachment attachment = attachment(100000, 7);
+    Buffer encoded = cache.encoded(attachment);
+    assertEquals(Utils.base64(attachment.getData().getBytes()).replace("\n", "\r\n") + "\r\n", encoded.toString());
+    assertEquals(encoded.length(), cache.size());
+  }
+
+  @Test
+  public void testSameData() {
+    EncodedAttachmentCache cache = new EncodedAttachmentCache(1000000);
+    MailAttachment attachment = attachment(1000, 7);
+    Buffer encoded = cache.encoded(attachment);
+    assertSame(encoded, cache.encoded(MailAttachment.create().setData(attachment.getData())));
+    // equal data in another buffer is not looked up by content
+    assertNotSame(encoded, cache.encoded(attachment(1000, 7)));
+  }
+
+  @Test
+  public void testCacheKey() {
+    EncodedAttachmentCache cache = new EncodedAttachmentCache(1000000);
+    Buffer encoded = cache.encoded(attachment(1000, 7).setCacheKey("key"));
+    // the data is not looked at if the key is set
+    assertSame(encoded, cache.encoded(attachment(1000, 3).setCacheKey("key")));
+    assertNotSame(encoded, cache.encoded(attachment(1000, 7)));
+  }
+
+  @Test
+  public void testEviction() {
+    // each encoded attachment is 1372 bytes
+    EncodedAttachmentCache cache = new EncodedAttachmentCache(3000);
+    MailAttachment attachment1 = attachment(1000, 1);
+    MailAttachment attachment2 = attachment(1000, 2);
+    Buffer first = cache.encoded(attachment1);
+    Buffer second = cache.encoded(attachment2);
+    // first is now the most recently used
+    assertSame(first, cache.encoded(attachment1));
+    cache.encoded(attachment(1000, 3));
+    assertEquals(2 * 1372, cache.size());
+    assertSame(first, cache.encoded(attachment1));
+    assertNotSame(second, cache.encoded(attachment2));
+  }
+
+  @Test
+  public void testTooLarge() {
+    EncodedAttachmentCache cache = new EncodedAttachmentCache(1000);
+    assertNull(cache.encoded(attachment(1000, 1)));
+    assertEquals(0, cache.size());
+  }
+
+}
@@ -28,6 +28,7 @@ import io.vertx.ext.mail.MailAttachment;
 import io.vertx.ext.mail.MailMessage;
 import io.vertx.ext.mail.TestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -605,4 +606,46 @@ public class MailEncoderTest {
     assertThat(encoder.encode(), containsString("--=--My_Email_Client"));
   }
 
+  @Test
+  public void testSizeText() {
+    assertSize(new MailMessage().setTo("user@example.com").setText("line\n.line\n\n"));
+    assertSize(new MailMessage().setTo("user@example.com").setText("äöü \u20ac \ud83d\ude00\n"));
+    assertSize(new MailMessage().setTo("user@example.com").setSubject("Subject äöü"));
+  }
+
+  @Test
+  public void testSizeMultiPart() {
+    MailMessage message = new MailMessage().setTo("user@example.com").setText("text äöü").setHtml("<b>html</b>");
+    List<MailAttachment> attachments = new ArrayList<>();
+    attachments.add(MailAttachment.create().setData(Buffer.buffer()));
+    attachments.add(MailAttachment.create().setData(Buffer.buffer(new byte[57])).setName("file.txt"));
+    attachments.add(MailAttachment.create().setData(Buffer.buffer(new byte[1000])));
+    message.setAttachment(attachments);
+    message.setInlineAttachment(MailAttachment.create().setData(Buffer.buffer("inline")).setContentId("<id>"));
+    assertSize(message);
+  }
+
+  // size() is the number of bytes written to the DATA command without dot-stuffing
+  private void assertSize(MailMessage message) {
+    EncodedPart part = new MailEncoder(message, HOSTNAME).encodeMail();
+    assertEquals(mailData(part).getBytes(StandardCharsets.UTF_8).length, part.size());
+  }
+
+  private String mailData(EncodedPart part) {
+    StringBuilder sb = new StringBuilder();
+    part.headers().forEach(header -> sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n"));
+    sb.append("\r\n");
+    if (part.parts() != null) {
+      for (EncodedPart thePart : part.parts()) {
+        sb.append("--").append(part.boundary()).append("\r\n").append(mailData(thePart));
+      }
+      sb.append("--").append(part.boundary()).append("--\r\n");
+    } else {
+      for (String line : part.encodedBody().split("\n")) {
+        sb.append(line).append("\r\n");
+      }
+    }
+    return sb.toString();
+  }
+
 }
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.mail.mailencoder;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mail.MailAttachment;
+import io.vertx.ext.mail.MailMessage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * test that the mails of a template are encoded like the complete messages
+ */
+public class MailTemplateTest {
+
+  private static final String HOSTNAME = "my.hostname.com";
+
+  private MailMessage template() {
+    return new MailMessage()
+      .setFrom("from@example.com")
+      .setTo("${email} (${name})")
+      .setSubject("Hello ${name}")
+      .setText("Dear ${name},\n\nthis is the same for everyone\n\tand so is this line \n\n${greeting}\n");
+  }
+
+  private MailMessage replaced(String email, String name, String greeting) {
+    return new MailMessage()
+      .setFrom("from@example.com")
+      .setTo(email + " (" + name + ")")
+      .setSubject("Hello " + name)
+      .setText("Dear " + name + ",\n\nthis is the same for everyone\n\tand so is this line \n\n" + greeting + "\n");
+  }
+
+  private void assertSameEncoding(MailMessage expected, MailMessage template, JsonObject values) {
+    MailTemplate mailTemplate = new MailTemplate(template, HOSTNAME, null);
+    MailMessage message = mailTemplate.message(values);
+    assertEquals(expected.getTo(), message.getTo());
+    EncodedPart expectedPart = new MailEncoder(expected, HOSTNAME).encodeMail();
+    EncodedPart part = mailTemplate.encoder(message, values).encodeMail();
+    for (String header : Arrays.asList("Subject", "To", "From", "Content-Type", "Content-Transfer-Encoding")) {
+      assertEquals(expectedPart.headers().get(header), part.headers().get(header));
+    }
+    assertEquals(expectedPart.body(), part.body());
+    assertEquals(expectedPart.size(), part.size());
+  }
+
+  @Test
+  public void test7bit() {
+    JsonObject values = new JsonObject().put("email", "user@example.com").put("name", "User").put("greeting", "Bye");
+    assertSameEncoding(replaced("user@example.com", "User", "Bye"), template(), values);
+  }
+
+  @Test
+  public void testQuotedPrintableValue() {
+    JsonObject values = new JsonObject().put("email", "user@example.com").put("name", "Jürgen")
+      .put("greeting", "Grüße =============================================================================");
+    assertSameEncoding(replaced("user@example.com", "Jürgen",
+      "Grüße ============================================================================="), template(), values);
+  }
+
+  @Test
+  public void testQuotedPrintableTemplate() {
+    MailMessage template = template().setHtml("<p>Schöne Grüße</p>\n<p>${name}</p>\n");
+    MailMessage expected = replaced("user@example.com", "User", "Bye").setHtml("<p>Schöne Grüße</p>\n<p>User</p>\n");
+    JsonObject values = new JsonObject().put("email", "user@example.com").put("name", "User").put("greeting", "Bye");
+    MailTemplate mailTemplate = new MailTemplate(template, HOSTNAME, null);
+    EncodedPart part = mailTemplate.encoder(mailTemplate.message(values), values).encodeMail();
+    EncodedPart expectedPart = new MailEncoder(expected, HOSTNAME).encodeMail();
+    for (int i = 0; i < 2; i++) {
+      for (String header : Arrays.asList("Content-Type", "Content-Transfer-Encoding")) {
+        assertEquals(expectedPart.parts().get(i).headers().get(header), part.parts().get(i).headers().get(header));
+      }
+      assertEquals(expectedPart.parts().get(i).body(), part.parts().get(i).body());
+    }
+  }
+
+  @Test
+  public void testNoPlaceholders() {
+    MailMessage message = new MailMessage().setFrom("from@example.com").setTo("user@example.com")
+      .setSubject("Subject").setText("");
+    assertSameEncoding(message, message, new JsonObject());
+  }
+
+  @Test
+  public void testAttachmentsAreShared() {
+    MailMessage template = template()
+      .setAttachment(Collections.singletonList(MailAttachment.create().setData(Buffer.buffer("data"))));
+    MailTemplate mailTemplate = new MailTemplate(template, HOSTNAME, null);
+    JsonObject values1 = new JsonObject().put("email", "user1@example.com").put("name", "User").put("greeting", "Bye");
+    JsonObject values2 = new JsonObject().put("email", "user2@example.com").put("name", "User").put("greeting", "Bye");
+    EncodedPart part1 = mailTemplate.encoder(mailTemplate.message(values1), values1).encodeMail();
+    EncodedPart part2 = mailTemplate.encoder(mailTemplate.message(values2), values2).encodeMail();
+    assertSame(part1.parts().get(1), part2.parts().get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingValue() {
+    MailTemplate mailTemplate = new MailTemplate(template(), HOSTNAME, null);
+    mailTemplate.message(new JsonObject().put("email", "user@example.com"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStreamAttachment() {
+    MailMessage template = template().setAttachment(Collections.singletonList(MailAttachment.create()
+      .setStream(new Base64ReadStream(null, Buffer.buffer("data")))));
+    new MailTemplate(template, HOSTNAME, null);
+  }
+
+}
@@ -19,8 +19,11 @@ package io.vertx.ext.mail.mailencoder;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * this are tests of the Utils class (as opposed to utils for our tests, that
@@ -61,4 +64,84 @@ public class UtilsTest {
       Utils.base64("**********************************************************************************************".getBytes(StandardCharsets.ISO_8859_1)));
   }
 
+  @Test
+  public void testEncodeQP() {
+    assertEquals("", Utils.encodeQP(""));
+    assertEquals("a=3Db\n=C3=A4=C3=B6=C3=BC", Utils.encodeQP("a=b\näöü"));
+    assertEquals("trailing space=20\nline", Utils.encodeQP("trailing space \nline"));
+    assertEquals("tab=09", Utils.encodeQP("tab\t"));
+    Random random = new Random(0);
+    String chars = "abc =.;|\t\r\näöü\u20ac\ud83d\ude00";
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = random.nextInt(300);
+      for (int j = 0; j < length; j++) {
+        sb.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      String text = sb.toString();
+      assertEquals(encodeQPStrings(text), Utils.encodeQP(text));
+      assertEquals(encodeQPStrings(text).replaceAll(";", "=3B").replaceAll(" ", "=20"), Utils.encodeQP(text, "; "));
+    }
+  }
+
+  @Test
+  public void testEncodeQPLineLength() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("ä");
+    }
+    String encoded = Utils.encodeQP(sb.toString());
+    assertEquals(encodeQPStrings(sb.toString()), encoded);
+    for (String line : encoded.split("\n")) {
+      assertTrue(line.length() <= 76);
+    }
+  }
+
+  // the String based encoder the byte based one has to match
+  private static String encodeQPStrings(String text) {
+    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+    StringBuilder sb = new StringBuilder();
+    int column = 0;
+    for (int i = 0; i < utf8.length; i++) {
+      char ch = (char) utf8[i];
+      if (ch == '\n') {
+        sb.append(ch);
+        column = 0;
+      } else {
+        boolean nextIsEOL = i == utf8.length - 1 || utf8[i + 1] == '\n';
+        String encChar;
+        if (Utils.mustEncode(ch) || nextIsEOL && ch == ' ') {
+          encChar = ch < 16 ? "=0" + Integer.toHexString(ch).toUpperCase(Locale.ENGLISH)
+            : '=' + Integer.toHexString(ch & 0xff).toUpperCase(Locale.ENGLISH);
+        } else {
+          encChar = String.valueOf(ch);
+        }
+        int newColumn = column + encChar.length();
+        if (newColumn <= 75 || nextIsEOL && newColumn == 76) {
+          sb.append(encChar);
+          column = newColumn;
+        } else {
+          sb.append("=\n").append(encChar);
+          column = encChar.length();
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testBase64Size() {
+    assertEquals(0, Utils.base64Size(0));
+    assertEquals(6, Utils.base64Size(1));
+    assertEquals(78, Utils.base64Size(57));
+    assertEquals(84, Utils.base64Size(58));
+    // 1.5 GB is encoded to about 2 GB
+    assertEquals(2147483598, Utils.base64Size(57L * 27531841));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBase64SizeTooLarge() {
+    Utils.base64Size(1600L * 1024 * 1024);
+  }
+
 }